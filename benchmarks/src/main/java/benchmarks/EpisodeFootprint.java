@@ -0,0 +1,51 @@
+package benchmarks;
+
+import models.EpisodeListCache;
+import models.EpisodeModel;
+import models.StreamingXMLParser;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how much heap the saved schedules take when every channel has a schedule the size of the
+ * schedule fixture, as it would after all channels have been prefetched.
+ * Every channel parses the fixture on its own, so nothing is shared between channels except what the
+ * models share themselves. Run with a small heap, for example -Xmx64m, to check that everything fits.
+ * Optional argument: the number of channels, 52 by default.
+ */
+public class EpisodeFootprint {
+    public static void main(String[] args) throws Exception {
+        int channelCount = args.length > 0 ? Integer.parseInt(args[0]) : FixtureGenerator.CHANNEL_COUNT;
+        List<byte[]> pages = Fixtures.schedulePages();
+        StreamingXMLParser parser = new StreamingXMLParser();
+        EpisodeListCache cache = new EpisodeListCache();
+        long before = usedHeap();
+        int episodeCount = 0;
+        for(int channel = 0 ; channel < channelCount ; channel++){
+            List<EpisodeModel> episodes = new ArrayList<>();
+            for(byte[] page : pages){
+                episodes.addAll(parser.parseEpisodePage(new ByteArrayInputStream(page)).items());
+            }
+            cache.saveEpisodeList(channel, episodes, Instant.now());
+            episodeCount += episodes.size();
+        }
+        long used = usedHeap() - before;
+        System.out.printf("%d channels, %d episodes: %.1f MiB retained, %d bytes per episode%n",
+                channelCount, episodeCount, used / (1024.0 * 1024.0), used / episodeCount);
+        //keep the cache reachable until it has been measured
+        System.out.println(cache.getChannelIds().size() == channelCount ? "" : "?");
+    }
+
+    private static long usedHeap(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for(int i = 0 ; i < 5 ; i++){
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import controllers.ScheduleExporter;
+import models.APIHandler;
+import models.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the headless export of all channels against the channel and schedule fixtures, with a simulated
+ * round trip for every request. Every channel gets the same schedule, and the output is thrown away.
+ * The exporter reports its own throughput, the peak heap used during the export is printed after it.
+ * Optional arguments: the simulated round trip in milliseconds, 80 by default, and the format, csv by default.
+ */
+public class ExportThroughput {
+    public static void main(String[] args) throws Exception {
+        long roundTripMs = args.length > 0 ? Long.parseLong(args[0]) : 80;
+        ScheduleExporter.Format format = args.length > 1 ?
+                ScheduleExporter.Format.valueOf(args[1].toUpperCase(Locale.ROOT)) : ScheduleExporter.Format.CSV;
+        ScheduleExporter.useExportDefaults();
+        List<byte[]> channelPages = Fixtures.channelPages();
+        List<byte[]> schedulePages = Fixtures.schedulePages();
+        APIHandler.setTransport((url, headers) -> {
+            try {
+                Thread.sleep(roundTripMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            int pageIndex = url.contains("page=") ? Integer.parseInt(url.substring(url.indexOf("page=") + 5)) : 1;
+            List<byte[]> pages = url.contains("/channels") ? channelPages : schedulePages;
+            return new FixtureResponse(pages.get(pageIndex - 1));
+        });
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+            pool.resetPeakUsage();
+        }
+        boolean complete = new ScheduleExporter(format, System.out).export(OutputStream.nullOutputStream());
+        long peak = 0;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+            if(pool.getType() == MemoryType.HEAP){
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("round trip %d ms, %s: %s, peak heap %.1f MiB%n", roundTripMs, format,
+                complete ? "all channels written" : "some channels failed", peak / (1024.0 * 1024.0));
+    }
+
+    /**
+     * A successful response with a fixture page as body
+     */
+    private record FixtureResponse(byte[] body) implements HttpTransport.Response {
+        @Override
+        public int getStatusCode(){
+            return 200;
+        }
+
+        @Override
+        public String getHeader(String name){
+            return null;
+        }
+
+        @Override
+        public InputStream getBody(){
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import models.APIHandler;
+import models.EpisodeModel;
+import models.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long it takes from asking for the schedule of a channel until the first page of episodes can be
+ * shown, and until the whole schedule has arrived. The API is replaced by a transport that answers with the
+ * schedule fixture after a simulated round trip, every day of the schedule gets the same ten pages.
+ * Optional argument: the simulated round trip in milliseconds, 80 by default.
+ */
+public class FirstRowLatency {
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) throws Exception {
+        long roundTripMs = args.length > 0 ? Long.parseLong(args[0]) : 80;
+        List<byte[]> pages = Fixtures.schedulePages();
+        APIHandler.setTransport((url, headers) -> {
+            try {
+                Thread.sleep(roundTripMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            int pageIndex = url.contains("&page=") ? Integer.parseInt(url.substring(url.indexOf("&page=") + 6)) : 1;
+            return new FixtureResponse(pages.get(pageIndex - 1));
+        });
+        long[] firstPage = new long[RUNS];
+        long[] allPages = new long[RUNS];
+        for(int run = 0 ; run < RUNS ; run++){
+            AtomicLong first = new AtomicLong();
+            long start = System.nanoTime();
+            List<EpisodeModel> episodes = new APIHandler().getScheduledEpisodeModels(run,
+                    page -> first.compareAndSet(0, System.nanoTime()));
+            allPages[run] = System.nanoTime() - start;
+            firstPage[run] = first.get() - start;
+            if(episodes == null){
+                throw new IllegalStateException("the schedule could not be read");
+            }
+        }
+        System.out.printf("round trip %d ms: first page after %.0f ms, whole schedule after %.0f ms (medians of %d)%n",
+                roundTripMs, median(firstPage) / 1e6, median(allPages) / 1e6, RUNS);
+    }
+
+    private static double median(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * A successful response with a fixture page as body
+     */
+    private record FixtureResponse(byte[] body) implements HttpTransport.Response {
+        @Override
+        public int getStatusCode(){
+            return 200;
+        }
+
+        @Override
+        public String getHeader(String name){
+            return null;
+        }
+
+        @Override
+        public InputStream getBody(){
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
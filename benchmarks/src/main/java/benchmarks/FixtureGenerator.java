@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Writes the payloads in src/main/resources/fixtures. They have the same structure as responses from the SR API
+ * (channels at the default page size of 10, schedules and what is on air requested with size=100) and are generated
+ * from a fixed seed so that the checked in files can be recreated.
+ * Run from the benchmarks directory, optionally with the directory to write to as argument.
+ */
+public class FixtureGenerator {
+    static final int CHANNEL_COUNT = 52;
+    static final int CHANNEL_PAGE_SIZE = 10;
+    static final int EPISODE_COUNT = 1000;
+    static final int EPISODE_PAGE_SIZE = 100;
+    static final Instant SCHEDULE_START = Instant.parse("2023-02-07T00:00:00Z");
+    private static final String[] PROGRAMS = {"Ekot", "P1 Morgon", "Vetenskapsradion", "Sommar i P1", "Kulturnytt",
+            "P3 Dokumentär", "Musikguiden i P3", "P4 Extra", "Melodikrysset", "Sportextra", "Klassisk morgon",
+            "Radiosporten", "Konflikt", "Studio Ett", "Godmorgon, världen!", "Nordegren & Epstein i P1"};
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of(args.length > 0 ? args[0] : "src/main/resources/fixtures");
+        Random random = new Random(20230207);
+        int channelPages = (CHANNEL_COUNT + CHANNEL_PAGE_SIZE - 1) / CHANNEL_PAGE_SIZE;
+        for(int page = 1 ; page <= channelPages ; page++){
+            write(dir.resolve("channels/page-" + page + ".xml"), channelPage(page, channelPages));
+        }
+        int episodePages = (EPISODE_COUNT + EPISODE_PAGE_SIZE - 1) / EPISODE_PAGE_SIZE;
+        Instant start = SCHEDULE_START;
+        for(int page = 1 ; page <= episodePages ; page++){
+            StringBuilder xml = header();
+            xml.append("<schedule>");
+            for(int i = 0 ; i < EPISODE_PAGE_SIZE ; i++){
+                Instant end = start.plus(Duration.ofMinutes(5L * (1 + random.nextInt(12))));
+                appendEpisode(xml, "scheduledepisode", (page - 1) * EPISODE_PAGE_SIZE + i, start, end, random);
+                start = end;
+            }
+            xml.append("</schedule>");
+            appendPagination(xml, page, EPISODE_PAGE_SIZE, EPISODE_COUNT, episodePages);
+            write(dir.resolve("schedule/page-" + page + ".xml"), xml.append("</sr>").toString());
+        }
+        write(dir.resolve("rightnow/page-1.xml"), rightNowPage(random));
+    }
+
+    private static String rightNowPage(Random random){
+        StringBuilder xml = header();
+        xml.append("<channels>");
+        String[] elements = {"previousscheduledepisode", "currentscheduledepisode", "nextscheduledepisode"};
+        for(int i = 0 ; i < CHANNEL_COUNT ; i++){
+            int id = 132 + i;
+            xml.append("<channel id=\"").append(id).append("\" name=\"P4 Kanal ").append(i).append("\">");
+            //the current episode started less than an hour before the middle of the schedule and lasts over an hour
+            Instant currentStart = Fixtures.SCHEDULE_MIDPOINT.minus(Duration.ofMinutes(5L * (1 + random.nextInt(12))));
+            Instant start = currentStart.minus(Duration.ofHours(1));
+            for(int e = 0 ; e < elements.length ; e++){
+                Instant end = e == 0 ? currentStart : start.plus(Duration.ofMinutes(5L * (13 + random.nextInt(12))));
+                appendEpisode(xml, elements[e], i * elements.length + e, start, end, random);
+                start = end;
+            }
+            xml.append("</channel>");
+        }
+        xml.append("</channels>");
+        appendPagination(xml, 1, 100, CHANNEL_COUNT, 1);
+        return xml.append("</sr>").toString();
+    }
+
+    private static String channelPage(int page, int pageCount){
+        StringBuilder xml = header();
+        xml.append("<channels>");
+        for(int i = (page - 1) * CHANNEL_PAGE_SIZE ; i < Math.min(CHANNEL_COUNT, page * CHANNEL_PAGE_SIZE) ; i++){
+            int id = 132 + i;
+            xml.append("<channel id=\"").append(id).append("\" name=\"P4 Kanal ").append(i).append("\">")
+                    .append("<image>https://static-cdn.sr.se/images/").append(id).append("/logo.png</image>")
+                    .append("<imagetemplate>https://static-cdn.sr.se/images/").append(id)
+                    .append("/logo.png</imagetemplate><color>31a1bd</color>")
+                    .append("<tagline>Lokala nyheter, väder och trafik dygnet runt</tagline>")
+                    .append("<siteurl>https://sverigesradio.se/kanal").append(id).append("</siteurl>")
+                    .append("<liveaudio id=\"").append(id).append("\"><url>https://sverigesradio.se/topsy/direkt/")
+                    .append(id).append(".mp3</url><statkey>/app/direkt/kanal").append(id)
+                    .append("</statkey></liveaudio>")
+                    .append("<scheduleurl>https://api.sr.se/v2/scheduledepisodes?channelid=").append(id)
+                    .append("</scheduleurl><channeltype>Lokal kanal</channeltype><xmltvid>p4.").append(id)
+                    .append(".sr.se</xmltvid></channel>");
+        }
+        xml.append("</channels>");
+        appendPagination(xml, page, CHANNEL_PAGE_SIZE, CHANNEL_COUNT, pageCount);
+        return xml.append("</sr>").toString();
+    }
+
+    private static void appendEpisode(StringBuilder xml, String element, int index, Instant start, Instant end,
+                                      Random random){
+        String program = PROGRAMS[random.nextInt(PROGRAMS.length)];
+        int programId = 4540 + program.length();
+        xml.append("<").append(element).append("><episodeid>").append(2_000_000 + index).append("</episodeid>")
+                .append("<title>").append(escape(program)).append("</title>")
+                .append("<subtitle>Del ").append(1 + random.nextInt(40)).append("</subtitle>")
+                .append("<description>").append(escape(program))
+                .append(" med nyheter, samtal och musik. Programledare tar emot samtal från lyssnare i hela landet ")
+                .append("och gästerna diskuterar veckans händelser.</description>")
+                .append("<starttimeutc>").append(start).append("</starttimeutc>")
+                .append("<endtimeutc>").append(end).append("</endtimeutc>")
+                .append("<program id=\"").append(programId).append("\" name=\"").append(escape(program)).append("\" />")
+                .append("<channel id=\"132\" name=\"P1\" />")
+                .append("<imageurl>https://static-cdn.sr.se/images/").append(programId)
+                .append("/episode.jpg?preset=api-default-square</imageurl>")
+                .append("<imageurltemplate>https://static-cdn.sr.se/images/").append(programId)
+                .append("/episode.jpg</imageurltemplate>")
+                .append("</").append(element).append(">");
+    }
+
+    private static StringBuilder header(){
+        return new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><sr>")
+                .append("<copyright>Copyright Sveriges Radio 2023. All rights reserved.</copyright>");
+    }
+
+    private static void appendPagination(StringBuilder xml, int page, int size, int hits, int pageCount){
+        xml.append("<pagination><page>").append(page).append("</page><size>").append(size)
+                .append("</size><totalhits>").append(hits).append("</totalhits><totalpages>").append(pageCount)
+                .append("</totalpages></pagination>");
+    }
+
+    private static String escape(String text){
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content + "\n", StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import models.EpisodeModel;
+import models.StreamingXMLParser;
+import models.XMLParsers;
+import org.w3c.dom.Document;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loads the checked in API payloads that the benchmarks run against
+ */
+final class Fixtures {
+    /** a time in the middle of the schedule fixture, used as current time when trimming */
+    static final Instant SCHEDULE_MIDPOINT = FixtureGenerator.SCHEDULE_START.plus(Duration.ofDays(2));
+
+    private Fixtures(){}
+
+    /**
+     * @return the raw pages of the channel list
+     */
+    static List<byte[]> channelPages(){
+        return pages("channels");
+    }
+
+    /**
+     * @return the raw pages of the schedule
+     */
+    static List<byte[]> schedulePages(){
+        return pages("schedule");
+    }
+
+    /**
+     * @return the raw pages of what is on air on all channels
+     */
+    static List<byte[]> rightNowPages(){
+        return pages("rightnow");
+    }
+
+    /**
+     * @param pages raw pages
+     * @return the pages parsed into documents
+     */
+    static List<Document> parse(List<byte[]> pages){
+        List<Document> documents = new ArrayList<>();
+        try {
+            for(byte[] page : pages){
+                documents.add(XMLParsers.parseDocument(new ByteArrayInputStream(page)));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Kunde inte läsa testdata", e);
+        }
+        return documents;
+    }
+
+    /**
+     * @return all episodes of the schedule fixture
+     */
+    static List<EpisodeModel> episodes(){
+        StreamingXMLParser parser = new StreamingXMLParser();
+        List<EpisodeModel> episodes = new ArrayList<>();
+        try {
+            for(byte[] page : schedulePages()){
+                episodes.addAll(parser.parseEpisodePage(new ByteArrayInputStream(page)).items());
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Kunde inte läsa testdata", e);
+        }
+        return episodes;
+    }
+
+    /**
+     * Draws a cover image like the ones linked from the API, with gradients, text and some noise so that it
+     * compresses like a photo. Binary fixtures are not checked in, the same image is drawn every time
+     * @param size width and height of the image
+     * @param format format to encode the image in, jpg or png
+     * @return the encoded image
+     */
+    static byte[] coverImage(int size, String format){
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(20, 60, 140), size, size, new Color(230, 120, 40)));
+        graphics.fillRect(0, 0, size, size);
+        Random random = new Random(size);
+        for(int i = 0 ; i < 40 ; i++){
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 120));
+            graphics.fillOval(random.nextInt(size), random.nextInt(size), size / 8, size / 8);
+        }
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, size / 10));
+        graphics.drawString("P3 Morgon", size / 10, size / 2);
+        graphics.dispose();
+        for(int i = 0 ; i < size * size / 20 ; i++){
+            image.setRGB(random.nextInt(size), random.nextInt(size), random.nextInt());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, format, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> pages(String name){
+        List<byte[]> pages = new ArrayList<>();
+        for(int page = 1 ; ; page++){
+            try(InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name + "/page-" + page + ".xml")){
+                if(in == null){
+                    break;
+                }
+                pages.add(in.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if(pages.isEmpty()){
+            throw new IllegalStateException("Testdata saknas: fixtures/" + name);
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the two ways of turning a cover image into a 100x100 thumbnail that ImageScalingBenchmark times,
+ * by CPU time, bytes allocated and bytes still reachable afterwards per image, for JPEG covers of a few sizes.
+ * Optional argument: the number of images per measurement, 100 by default.
+ */
+public class ImageFootprint {
+    private static final int[] SIZES = {600, 1400, 3000};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        for(int size : SIZES){
+            byte[] encoded = Fixtures.coverImage(size, "jpg");
+            measure("fullDecodeSmoothScale", size, count, () -> ImageScalingBenchmark.fullDecodeSmoothScale(encoded));
+            measure("subsampledDecode", size, count, () -> ImageScalingBenchmark.subsampledDecode(encoded));
+        }
+    }
+
+    private static void measure(String name, int size, int count, Scaler scaler) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0 ; i < 10 ; i++){
+            scaler.scale();
+        }
+        List<BufferedImage> kept = new ArrayList<>();
+        long before = usedHeap();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        for(int i = 0 ; i < count ; i++){
+            kept.add(scaler.scale());
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long retained = usedHeap() - before;
+        System.out.printf("%-22s %4dx%-4d %8.2f ms CPU %10d bytes allocated %7d bytes retained per image%n",
+                name, size, size, cpu / 1e6 / count, allocated / count, retained / count);
+        //keep the thumbnails reachable until they have been measured
+        System.out.print(kept.size() == count ? "" : "?");
+    }
+
+    private static long usedHeap(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for(int i = 0 ; i < 5 ; i++){
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private interface Scaler {
+        BufferedImage scale() throws Exception;
+    }
+}
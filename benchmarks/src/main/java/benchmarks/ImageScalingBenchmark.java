@@ -0,0 +1,74 @@
+package benchmarks;
+
+import models.ImageDownscaler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning an encoded cover image into a 100x100 thumbnail: decoding at full size and scaling with
+ * Image.SCALE_SMOOTH as the application used to, against decoding at a reduced size with ImageDownscaler.
+ * Run with -prof gc to also see the bytes allocated per image, ImageFootprint shows the bytes that are kept
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageScalingBenchmark {
+    @Param({"600", "1400", "3000"})
+    public int size;
+    @Param({"jpg", "png"})
+    public String format;
+    private byte[] encoded;
+
+    @Setup
+    public void drawImage(){
+        encoded = Fixtures.coverImage(size, format);
+    }
+
+    @Benchmark
+    public BufferedImage fullDecodeSmoothScale() throws IOException {
+        return fullDecodeSmoothScale(encoded);
+    }
+
+    @Benchmark
+    public BufferedImage subsampledDecode() throws IOException {
+        return subsampledDecode(encoded);
+    }
+
+    /**
+     * The way covers were scaled before ImageDownscaler
+     */
+    static BufferedImage fullDecodeSmoothScale(byte[] encoded) throws IOException {
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(encoded));
+        Image scaled = original.getScaledInstance(100, 100, Image.SCALE_SMOOTH);
+        boolean transparent = original.getColorModel().hasAlpha();
+        BufferedImage result = new BufferedImage(100, 100,
+                transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = result.createGraphics();
+        graphics.drawImage(scaled, 0, 0, null);
+        graphics.dispose();
+        return result;
+    }
+
+    static BufferedImage subsampledDecode(byte[] encoded) throws IOException {
+        return ImageDownscaler.scale(ImageDownscaler.decode(new ByteArrayInputStream(encoded), 100, 100), 100, 100);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import models.LatencyHistogram;
+import models.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures what the metrics add to the code they measure: recording a duration with its two calls to
+ * System.nanoTime, looking a histogram up by name as PageFetcher does, and counting, alone and from
+ * four threads at once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private final Metrics metrics = new Metrics();
+    private final LatencyHistogram histogram = metrics.histogram("benchmark.histogram");
+    private final LongAdder counter = metrics.counter("benchmark.counter");
+    private final String endpoint = "scheduledepisodes";
+
+    @Benchmark
+    public void recordSince(){
+        histogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public void lookUpAndRecordSince(){
+        metrics.histogram("http." + endpoint).recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public void increment(){
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordSinceContended(){
+        histogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void incrementContended(){
+        counter.increment();
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import models.ChannelModel;
+import models.ChannelNowPlaying;
+import models.EpisodeListCache;
+import models.NowPlayingIndex;
+import models.NowPlayingTableModel;
+import models.StreamingXMLParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the overview of what is on air on all channels from the rightnow fixture:
+ * parsing the response, indexing it and creating the table model, and moving the index an hour forward
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NowPlayingBenchmark {
+    private final StreamingXMLParser parser = new StreamingXMLParser();
+    private byte[] page;
+    private List<ChannelNowPlaying> fetched;
+    private List<ChannelModel> channels;
+
+    @Setup
+    public void loadFixtures() throws Exception {
+        page = Fixtures.rightNowPages().get(0);
+        fetched = parser.parseRightNowPage(new ByteArrayInputStream(page)).items();
+        channels = fetched.stream().map(ChannelNowPlaying::channel).toList();
+    }
+
+    @Benchmark
+    public List<ChannelNowPlaying> parseRightNow() throws Exception {
+        return parser.parseRightNowPage(new ByteArrayInputStream(page)).items();
+    }
+
+    @Benchmark
+    public NowPlayingTableModel buildOverview(){
+        NowPlayingIndex index = new NowPlayingIndex(new EpisodeListCache());
+        index.update(channels, fetched, Fixtures.SCHEDULE_MIDPOINT);
+        return new NowPlayingTableModel(index.getChannels());
+    }
+
+    @Benchmark
+    public NowPlayingIndex advanceOneHour(){
+        NowPlayingIndex index = new NowPlayingIndex(new EpisodeListCache());
+        index.update(channels, fetched, Fixtures.SCHEDULE_MIDPOINT);
+        index.advance(Fixtures.SCHEDULE_MIDPOINT.plus(Duration.ofHours(1)));
+        return index;
+    }
+}
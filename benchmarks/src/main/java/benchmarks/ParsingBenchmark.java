@@ -0,0 +1,74 @@
+package benchmarks;
+
+import models.ChannelModel;
+import models.EpisodeModel;
+import models.StreamingXMLParser;
+import models.XMLParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning the channel and schedule fixtures into models, both from already built documents with XMLParser
+ * and directly from the raw pages with StreamingXMLParser.
+ * Cover images are not touched, episodes only keep the url of their image until it is first shown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+    private final XMLParser domParser = new XMLParser();
+    private final StreamingXMLParser streamingParser = new StreamingXMLParser();
+    private List<byte[]> channelPages;
+    private List<byte[]> schedulePages;
+    private List<Document> channelDocuments;
+    private List<Document> scheduleDocuments;
+
+    @Setup
+    public void loadFixtures(){
+        channelPages = Fixtures.channelPages();
+        schedulePages = Fixtures.schedulePages();
+        channelDocuments = Fixtures.parse(channelPages);
+        scheduleDocuments = Fixtures.parse(schedulePages);
+    }
+
+    @Benchmark
+    public List<ChannelModel> parseChannels(){
+        return domParser.parseChannels(channelDocuments);
+    }
+
+    @Benchmark
+    public List<EpisodeModel> parseEpisodes(){
+        return domParser.parseEpisodes(scheduleDocuments);
+    }
+
+    @Benchmark
+    public void parseChannelPagesStreaming(Blackhole blackhole) throws Exception {
+        for(byte[] page : channelPages){
+            blackhole.consume(streamingParser.parseChannelPage(new ByteArrayInputStream(page)));
+        }
+    }
+
+    @Benchmark
+    public void parseEpisodePagesStreaming(Blackhole blackhole) throws Exception {
+        for(byte[] page : schedulePages){
+            blackhole.consume(streamingParser.parseEpisodePage(new ByteArrayInputStream(page)));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import models.EpisodeModel;
+import models.EpisodeSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search index over the saved episodes of every channel, each channel has its own copy of the
+ * 1000 episode schedule fixture: indexing all channels, replacing one channel with a schedule that has moved
+ * forward, and searching for a prefix and for two words
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    private final List<List<EpisodeModel>> channels = new ArrayList<>();
+    private EpisodeSearchIndex index;
+    private List<EpisodeModel> moved;
+    private boolean movedShown;
+
+    @Setup
+    public void loadFixtures() throws Exception {
+        for(int i = 0 ; i < FixtureGenerator.CHANNEL_COUNT ; i++){
+            channels.add(Fixtures.episodes());
+        }
+        index = indexAll();
+        //the first channel a little later, with 100 episodes gone and 100 new ones
+        moved = new ArrayList<>(channels.get(0).subList(100, channels.get(0).size()));
+        moved.addAll(Fixtures.episodes().subList(0, 100));
+    }
+
+    @Benchmark
+    public EpisodeSearchIndex indexAllChannels(){
+        return indexAll();
+    }
+
+    @Benchmark
+    public EpisodeSearchIndex replaceOneChannel(){
+        //alternate so that every call replaces 100 episodes
+        movedShown = !movedShown;
+        index.replaceChannel(0, movedShown ? moved : channels.get(0));
+        return index;
+    }
+
+    @Benchmark
+    public List<EpisodeSearchIndex.Hit> searchPrefix(){
+        return index.search("värld", 500);
+    }
+
+    @Benchmark
+    public List<EpisodeSearchIndex.Hit> searchTwoWords(){
+        return index.search("p1 morg", 500);
+    }
+
+    private EpisodeSearchIndex indexAll(){
+        EpisodeSearchIndex created = new EpisodeSearchIndex();
+        for(int i = 0 ; i < channels.size() ; i++){
+            created.replaceChannel(i, channels.get(i));
+        }
+        return created;
+    }
+}
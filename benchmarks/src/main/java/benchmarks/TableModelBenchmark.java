@@ -0,0 +1,68 @@
+package benchmarks;
+
+import models.EpisodeModel;
+import models.RadioChannelTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting every cell of a table showing the schedule fixture, which is what the table does
+ * when it is painted from top to bottom, creating the model for it and updating a shown model
+ * with a schedule that has moved 100 episodes forward
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableModelBenchmark {
+    private List<EpisodeModel> episodes;
+    private RadioChannelTableModel model;
+    private RadioChannelTableModel shownModel;
+    private RadioChannelTableModel earlierSchedule;
+    private RadioChannelTableModel laterSchedule;
+    private boolean showsLaterSchedule;
+
+    @Setup
+    public void createModel(){
+        episodes = Fixtures.episodes();
+        model = new RadioChannelTableModel(episodes);
+        earlierSchedule = new RadioChannelTableModel(episodes.subList(0, episodes.size() - 100));
+        laterSchedule = new RadioChannelTableModel(episodes.subList(100, episodes.size()));
+        shownModel = new RadioChannelTableModel(episodes.subList(0, episodes.size() - 100));
+    }
+
+    @Benchmark
+    public RadioChannelTableModel updateShownModel(){
+        showsLaterSchedule = !showsLaterSchedule;
+        shownModel.update(showsLaterSchedule ? laterSchedule : earlierSchedule);
+        return shownModel;
+    }
+
+    @Benchmark
+    public RadioChannelTableModel createTableModel(){
+        return new RadioChannelTableModel(episodes);
+    }
+
+    @Benchmark
+    public void getValueAtAllCells(Blackhole blackhole){
+        for(int row = 0 ; row < model.getRowCount() ; row++){
+            for(int column = 0 ; column < model.getColumnCount() ; column++){
+                blackhole.consume(model.getValueAt(row, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import controllers.RadioInfoController;
+import models.EpisodeModel;
+import models.EpisodeTimeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures trimming the schedule fixture to the episodes shown in the table, and the queries of an already
+ * built EpisodeTimeline of it, with current time in the middle of the schedule
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrimEpisodeListBenchmark {
+    private List<EpisodeModel> episodes;
+    private EpisodeTimeline timeline;
+
+    @Setup
+    public void loadFixtures(){
+        episodes = Fixtures.episodes();
+        timeline = EpisodeTimeline.of(episodes);
+    }
+
+    @Benchmark
+    public List<EpisodeModel> trimEpisodeList(){
+        return RadioInfoController.trimEpisodeList(episodes, Fixtures.SCHEDULE_MIDPOINT);
+    }
+
+    @Benchmark
+    public List<EpisodeModel> timelineWindow(){
+        return timeline.getWindow(Fixtures.SCHEDULE_MIDPOINT.minus(Duration.ofHours(6)),
+                Fixtures.SCHEDULE_MIDPOINT.plus(Duration.ofHours(12)));
+    }
+
+    @Benchmark
+    public EpisodeModel timelineNowPlaying(){
+        return timeline.getNowPlaying(Fixtures.SCHEDULE_MIDPOINT);
+    }
+
+    @Benchmark
+    public EpisodeTimeline evictStartingBefore(){
+        return timeline.evictStartingBefore(Fixtures.SCHEDULE_MIDPOINT);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import models.XMLParsers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing one page of the schedule with a newly looked up DocumentBuilderFactory,
+ * as APIHandler used to do for every page, against parsing it with the pooled parsers in XMLParsers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlParserSetupBenchmark {
+    private byte[] page;
+
+    @Setup
+    public void loadPage(){
+        page = Fixtures.schedulePages().get(0);
+    }
+
+    @Benchmark
+    public DocumentBuilder newFactoryAndBuilder() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    }
+
+    @Benchmark
+    public Document parseWithNewFactory() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(page));
+    }
+
+    @Benchmark
+    public Document parseWithPooledParser() throws Exception {
+        return XMLParsers.parseDocument(new ByteArrayInputStream(page));
+    }
+}
@@ -1,6 +1,26 @@
 import controllers.RadioInfoController;
+import controllers.ScheduleExporter;
+
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) {
+        //--export writes the schedules of all channels without showing the user interface
+        boolean export = args.length > 0 && args[0].equals("--export");
+        //the export defaults are system properties read by static fields of the model classes,
+        //so they are set here before any of those classes is loaded
+        if(export){
+            ScheduleExporter.useExportDefaults();
+        }
+        //the connection cache keeps 5 idle connections per host unless told otherwise, keep one for every request
+        //that may be sent at the same time
+        if(System.getProperty("http.maxConnections") == null){
+            System.setProperty("http.maxConnections",
+                    Integer.toString(Integer.getInteger("radioinfo.fetch.parallelism", 8)));
+        }
+        if(export){
+            System.exit(ScheduleExporter.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
         RadioInfoController contoller = new RadioInfoController();
     }
 }
\ No newline at end of file
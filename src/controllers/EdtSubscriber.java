@@ -0,0 +1,72 @@
+package controllers;
+
+import javax.swing.*;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Subscribes to a publisher and hands its items to a consumer on the event dispatch thread, one at a time.
+ * The next item is only requested when the consumer is done with the previous one, so a fast publisher
+ * is held back instead of filling the event queue. Items that arrive after cancel has been called on the
+ * event dispatch thread are not handed on.
+ * @param <T> the type of the items
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class EdtSubscriber<T> implements Flow.Subscriber<T> {
+    private final Consumer<T> consumer;
+    private volatile Flow.Subscription subscription;
+    //only written on the event dispatch thread
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param consumer given each item on the event dispatch thread
+     */
+    public EdtSubscriber(Consumer<T> consumer){
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription){
+        this.subscription = subscription;
+        if(cancelled){
+            //cancelled before the subscription started, the publisher must not wait for this subscriber
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(T item){
+        SwingUtilities.invokeLater(() -> {
+            if(cancelled){
+                return;
+            }
+            try {
+                consumer.accept(item);
+            } finally {
+                subscription.request(1);
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable){
+        //the items that did arrive have been handed on, the publisher reports the error in its own way
+    }
+
+    @Override
+    public void onComplete(){
+    }
+
+    /**
+     * Stops handing on items, must be called on the event dispatch thread
+     */
+    public void cancel(){
+        cancelled = true;
+        if(subscription != null){
+            subscription.cancel();
+        }
+    }
+}
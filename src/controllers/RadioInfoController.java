@@ -1,161 +1,625 @@
 package controllers;
 
 import models.*;
-import org.w3c.dom.Document;
 import views.RadioInfoGUI;
+import views.TimedEventQueue;
 
 import javax.swing.*;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Handles user inputs from the applications user interface
- * Communicates between the view and models, also manages the timer for automatic data updates
+ * Communicates between the view and models, also manages the scheduler for automatic data updates
+ * Starts reporting the metrics of the application, see MetricsReporter for how they can be read
  * @author Samuel Sandlund
- * @version 2.1
+ * @version 4.1 only the covers of the episodes around current time are loaded before they are opened
  * @since 2023-02-07
  */
 public class RadioInfoController {
+    //time without the user opening a channel before all channels are prefetched
+    private static final int IDLE_DELAY_MS = 2 * 60 * 1000;
+    //shortest time between two fetches of what is on air on all channels
+    private static final Duration NOW_PLAYING_FETCH_INTERVAL = Duration.ofMinutes(5);
+    //largest number of episodes shown for a search
+    private static final int SEARCH_LIMIT = 500;
+    //number of fetched schedule pages that may wait to be shown, pages that arrive when it is full are dropped
+    private static final int PAGE_BUFFER_SIZE = 8;
+    //number of episodes from the one on air whose covers are loaded before they are opened
+    private static final int PRELOADED_IMAGES = 4;
+    //time after the last channel was opened before the visit counts are saved, so quick clicks give one save
+    private static final int VISIT_SAVE_DELAY_MS = 5000;
+    //key of the task that loads the channel to show, the load of the channel chosen last supersedes it
+    private static final String SHOWN_CHANNEL_TASK = "shown-channel";
+    //time before the channels are fetched again after a failure, doubled for every failure in a row
+    private static final int FIRST_CHANNEL_RETRY_MS = 5000;
+    private static final int MAX_CHANNEL_RETRY_MS = 5 * 60 * 1000;
+    //when the controller was created, startup times are measured from here
+    private final long startNanos = System.nanoTime();
     private RadioInfoGUI gui;
     private final EpisodeListCache savedChannelSchedules;
-    private final Timer updateTimer;
+    private final RefreshScheduler refreshScheduler;
+    private final DiskCache diskCache;
+    private final ScheduleRefresher scheduleRefresher;
+    private final SchedulePrefetcher prefetcher;
+    private final Timer idleTimer;
+    private final NowPlayingIndex nowPlayingIndex;
+    private final EpisodeSearchIndex searchIndex = new EpisodeSearchIndex();
+    private final TaskRunner taskRunner = new TaskRunner();
+    private final Timer nowPlayingTimer;
+    private NowPlayingTableModel nowPlayingTableModel;
+    private Instant lastNowPlayingFetch = Instant.MIN;
+    private boolean fetchingNowPlaying = false;
+    //true from when the overview is asked for until a channel is asked for
+    private boolean nowPlayingWanted = false;
+    private EdtSubscriber<List<EpisodeModel>> shownPages;
+    //a channel asked to be shown again while it was being loaded, shown again when the load is done
+    private ChannelModel pendingReload;
+    //id of the channel the shown channel task loads, and whether that task runs the load others may share
+    private int shownLoadChannelId = -1;
+    private AtomicBoolean shownLoadOwned = new AtomicBoolean();
+    private final Timer channelRetryTimer;
+    private final Timer visitSaveTimer;
+    //held while the visit counts are written, so that the counts taken last are also written last
+    private final Object visitSaveLock = new Object();
+    private volatile boolean visitCountsUnsaved = false;
+    private int channelRetryDelayMs = FIRST_CHANNEL_RETRY_MS;
+    private final Map<Integer, String> channelNames = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> visitCounts = new ConcurrentHashMap<>();
+    private volatile List<ChannelModel> availableChannels = new ArrayList<>();
 
     /**
-     * Creates a new controller and starts the update timer
+     * Creates a new controller and shows the view without waiting for the API,
+     * automatic updates start when the view has been created
      */
     public RadioInfoController(){
+        MetricsReporter.startShared();
+        TimedEventQueue.install();
         savedChannelSchedules = new EpisodeListCache();
-        updateTimer = new Timer(1000 * 3600, e -> updateEpisodeLists());
-        updateTimer.setRepeats(true);
+        //keep the search index in step with the saved lists
+        savedChannelSchedules.addListener(searchIndex::replaceChannel);
+        diskCache = DiskCache.getSharedCache();
+        scheduleRefresher = new ScheduleRefresher(savedChannelSchedules, diskCache, this::trimEpisodeList,
+                Integer.getInteger("radioinfo.refresh.parallelism", 4));
+        refreshScheduler = new RefreshScheduler(savedChannelSchedules, scheduleRefresher, taskRunner,
+                this::channelsRefreshed);
+        prefetcher = new SchedulePrefetcher(savedChannelSchedules, scheduleRefresher, taskRunner);
+        //when the user has not opened a channel for a while, prefetch all channels
+        idleTimer = new Timer(IDLE_DELAY_MS, e -> prefetcher.prefetch(availableChannels.stream()
+                .map(ChannelModel::getId).toList()));
+        idleTimer.setRepeats(false);
+        nowPlayingIndex = new NowPlayingIndex(savedChannelSchedules);
+        //fires when the next episode on some channel starts
+        nowPlayingTimer = new Timer(0, e -> updateNowPlaying());
+        nowPlayingTimer.setRepeats(false);
+        channelRetryTimer = new Timer(0, e -> fetchChannels());
+        channelRetryTimer.setRepeats(false);
+        visitCounts.putAll(diskCache.loadVisitCounts());
+        visitSaveTimer = new Timer(VISIT_SAVE_DELAY_MS, e -> taskRunner.submit(null, TaskRunner.Priority.REFRESH,
+                () -> {
+                    saveVisitCounts();
+                    return null;
+                }, null));
+        visitSaveTimer.setRepeats(false);
+        //counts from clicks the timer has not saved yet are saved when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveVisitCounts, "save-visit-counts"));
         openGui();
-        updateTimer.start();
     }
 
     /**
      * Creates a new view managed by this controller
+     * The view is shown at once, without channels. The channels and schedules saved on disk by an earlier session
+     * are then loaded in the background and shown, after which the channels are fetched from the API
      */
     private void openGui(){
-        //get available channels
-        APIHandler apiHandler = new APIHandler();
-        List<Document> channelInformation = apiHandler.getChannels();
-        if (channelInformation == null){
-            //if the program can not get available channels from SR just show an error message
-            SwingUtilities.invokeLater( () -> {
-                gui = new RadioInfoGUI(new ArrayList<>());
-                gui.setController(this);
-                gui.showErrorMessage(apiHandler.getErrorMessage());
-            });
-        }
-        else {
-            List<ChannelModel> availableChannels = new XMLParser().parseChannels(channelInformation);
-            //create new view
-            SwingUtilities.invokeLater( () -> {
-                gui = new RadioInfoGUI(availableChannels);
-                gui.setController(this);
-            });
-        }
-    }
-
-    /**
-     * Gets information about radio-programs that are broadcast on the given channel
-     * between 6 hours before and 12 hours after current time
-     * @param channel The channel to get episodes from
-     */
-    public void getScheduledEpisodes(ChannelModel channel){
-        SwingWorker worker = new SwingWorker() {
-            boolean success = true;
-            String error = "";
-            List<EpisodeModel> episodes;
+        SwingUtilities.invokeLater( () -> {
+            gui = new RadioInfoGUI(new ArrayList<>());
+            gui.setController(this);
+            gui.setFirstPaintListener(() ->
+                    Metrics.getSharedMetrics().histogram("startup.firstPaint").recordSince(startNanos));
+            gui.showChannelStatus("Hämtar kanaler...");
+            refreshScheduler.start();
+        });
+        SwingWorker<List<ChannelModel>, Void> worker = new SwingWorker<>() {
             @Override
-            protected Object doInBackground(){
-                //if the channels schedule has not been taken from the API yet, get it now, else get from cache
-                if (!savedChannelSchedules.hasSavedEpisodeList(channel.getId())) {
-                    SwingUtilities.invokeLater(() -> gui.showLoadingScreen());
-                    APIHandler apiHandler = new APIHandler();
-                    List<Document> documentList = apiHandler.getScheduledEpisodes(channel.getId());
-                    if (documentList == null){
-                        error = apiHandler.getErrorMessage();
-                        success = false;
-                        return null;
+            protected List<ChannelModel> doInBackground(){
+                diskCache.evictOldFiles(Instant.now());
+                List<ChannelModel> cachedChannels = diskCache.loadChannels();
+                if(cachedChannels == null || cachedChannels.isEmpty()){
+                    return null;
+                }
+                rememberChannels(cachedChannels);
+                SwingUtilities.invokeLater(() -> gui.setChannelList(cachedChannels));
+                for(DiskCache.CachedSchedule schedule : diskCache.loadAllEpisodes().values()){
+                    //a schedule fetched while the saved schedules were loaded is newer
+                    if(!savedChannelSchedules.hasSavedEpisodeList(schedule.channelId())){
+                        savedChannelSchedules.saveEpisodeList(schedule.channelId(),
+                                trimEpisodeList(schedule.episodes()), schedule.fetchTime());
                     }
-                    episodes = new XMLParser().parseEpisodes(documentList);
-                    episodes = trimEpisodeList(episodes);
-                    savedChannelSchedules.saveEpisodeList(channel, episodes);
                 }
-                episodes = savedChannelSchedules.getEpisodeList(channel.getId());
-                return null;
+                return cachedChannels;
             }
             @Override
             protected void done(){
-                if(success){
-                    gui.setCurrentChannel(channel, episodes);
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    //the saved schedules could not be read, they are fetched from the API instead
                 }
-                else{
-                    gui.showStartScreen();
-                    gui.showErrorMessage(error);
+                //the saved channels may have been shown even if their schedules could not be read
+                if(!availableChannels.isEmpty()){
+                    Metrics.getSharedMetrics().histogram("startup.channelList").recordSince(startNanos);
+                    startPrefetching();
                 }
+                fetchChannels();
             }
         };
         worker.execute();
     }
 
     /**
-     * Loops through the entries in the EpisodeListCache and updates the list of episodes for all saved channels
-     * the updates run on a background thread using a SwingWorker.
-     * This also resets the automatic update timer, so there will always be an hour to the next scheduled update
-     * no matter how the update was triggered.
-     * If an error occurs while fetching new episodes, tells the view to show a relevant error message
+     * Fetches the available channels from the API in the background and replaces the channels in the view
+     * with them, showing how many pages have arrived next to the menu. If the channels can not be fetched,
+     * or only some of them, the view keeps the channels it has and the fetch is tried again in the background
+     * after a delay that doubles with every failure
      */
-    public void updateEpisodeLists(){
-        updateTimer.restart();
-        SwingWorker worker = new SwingWorker() {
-            boolean success = true;
-            String error = "";
+    private void fetchChannels(){
+        boolean firstList = availableChannels.isEmpty();
+        SwingWorker<List<ChannelModel>, String> worker = new SwingWorker<>() {
+            APIHandler apiHandler = new APIHandler();
             @Override
-            protected Object doInBackground(){
-                for(int key : savedChannelSchedules.keySet()){
-                    APIHandler apiHandler = new APIHandler();
-                    List<Document> documentList = apiHandler.getScheduledEpisodes(key);
-                    if(documentList == null){
-                        error = apiHandler.getErrorMessage();
-                        success = false;
-                        return null;
-                    }
-                    List<EpisodeModel> episodes = new XMLParser().parseEpisodes(documentList);
-                    episodes = trimEpisodeList(episodes);
-                    savedChannelSchedules.put(key, episodes);
+            protected List<ChannelModel> doInBackground(){
+                List<ChannelModel> channels = apiHandler.getChannelModels((read, total) ->
+                        publish("Hämtar kanaler (" + read + " av " + total + " sidor)..."));
+                if(channels != null && !apiHandler.isIncomplete()){
+                    diskCache.saveChannels(channels);
                 }
-                return null;
+                return channels;
+            }
+            @Override
+            protected void process(List<String> statuses){
+                gui.showChannelStatus(statuses.get(statuses.size() - 1));
             }
             @Override
             protected void done(){
-                if(success){
-                    gui.updateCurrentChannel();
+                List<ChannelModel> channels;
+                try {
+                    channels = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    channels = null;
+                }
+                boolean complete = channels != null && !apiHandler.isIncomplete();
+                if(channels != null && !channels.isEmpty() && (complete || availableChannels.isEmpty())){
+                    rememberChannels(channels);
+                    gui.setChannelList(channels);
+                    if(firstList){
+                        Metrics.getSharedMetrics().histogram("startup.channelList").recordSince(startNanos);
+                        startPrefetching();
+                    }
+                }
+                if(complete){
+                    gui.showChannelStatus(null);
+                    channelRetryDelayMs = FIRST_CHANNEL_RETRY_MS;
+                    return;
                 }
-                else{
-                    gui.showErrorMessage("Uppdatering av tablådata misslyckades\n"+error);
+                if(availableChannels.isEmpty() && channelRetryDelayMs == FIRST_CHANNEL_RETRY_MS){
+                    //tell the user why there are no channels the first time, later failures are only shown in the menu
+                    gui.showErrorMessage(apiHandler.getErrorMessage());
                 }
+                gui.showChannelStatus((channels == null ? "Kunde inte hämta kanaler" : "Alla kanaler kunde inte hämtas")
+                        + ", försöker igen om " + channelRetryDelayMs / 1000 + " s");
+                channelRetryTimer.setInitialDelay(channelRetryDelayMs);
+                channelRetryTimer.restart();
+                channelRetryDelayMs = Math.min(MAX_CHANNEL_RETRY_MS, channelRetryDelayMs * 2);
             }
         };
         worker.execute();
     }
 
+    /**
+     * Opens a channel that the user selected, shows its episodes and starts prefetching the channels
+     * that are likely to be opened next
+     * @param channel The channel to open
+     */
+    public void openChannel(ChannelModel channel){
+        //the user wants this channel now, so stop using the network for guesses
+        prefetcher.cancel();
+        idleTimer.restart();
+        visitCounts.merge(channel.getId(), 1, Integer::sum);
+        visitCountsUnsaved = true;
+        visitSaveTimer.restart();
+        getScheduledEpisodes(channel, true);
+    }
+
+    /**
+     * Saves the visit counts if they have changed since they were last saved. The counts are taken while the
+     * lock is held, so that a save that started earlier can not overwrite newer counts
+     */
+    private void saveVisitCounts(){
+        synchronized (visitSaveLock){
+            if(!visitCountsUnsaved){
+                return;
+            }
+            visitCountsUnsaved = false;
+            diskCache.saveVisitCounts(new HashMap<>(visitCounts));
+        }
+    }
+
+    /**
+     * Shows the current and next episode of every channel. What is on air is fetched for all channels at once,
+     * channels with a saved schedule are shown from it. The overview is updated as episodes end for as long
+     * as it is shown.
+     */
+    public void showNowPlaying(){
+        nowPlayingWanted = true;
+        stopShowingChannel();
+        if(nowPlayingTableModel == null){
+            gui.showLoadingScreen();
+        }
+        else {
+            nowPlayingIndex.advance(Instant.now());
+            nowPlayingTableModel.update(nowPlayingIndex.getChannels());
+            gui.showNowPlaying(nowPlayingTableModel);
+        }
+        refreshScheduler.setVisibleChannel(null);
+        if(nowPlayingTableModel == null ||
+                Instant.now().isAfter(lastNowPlayingFetch.plus(NOW_PLAYING_FETCH_INTERVAL))){
+            fetchNowPlaying();
+        }
+        else {
+            scheduleNowPlayingUpdate();
+        }
+    }
+
+    /**
+     * Searches the saved episodes of all channels and shows the episodes that were found,
+     * an empty search leaves the search results
+     * @param query words that must match the start of words in the title, program or description of an episode
+     */
+    public void search(String query){
+        if(query.isBlank()){
+            if(gui.isSearchShown()){
+                gui.showStartScreen();
+            }
+            return;
+        }
+        nowPlayingWanted = false;
+        stopShowingChannel();
+        refreshScheduler.setVisibleChannel(null);
+        List<EpisodeSearchIndex.Hit> hits = searchIndex.search(query, SEARCH_LIMIT);
+        gui.showSearchResults(query, new SearchResultTableModel(hits, this::getChannelName));
+    }
+
+    /**
+     * Gets information about radio-programs that are broadcast on the given channel
+     * between 6 hours before and 12 hours after current time.
+     * While a channel is being loaded the request is remembered and made when the load is done, if the channel
+     * that was loaded is the same channel, since the channel chosen last is the one to show
+     * @param channel The channel to get episodes from
+     */
+    public void getScheduledEpisodes(ChannelModel channel){
+        if(taskRunner.hasTask(SHOWN_CHANNEL_TASK)){
+            pendingReload = channel;
+            return;
+        }
+        getScheduledEpisodes(channel, false);
+    }
+
+    /**
+     * Stops loading and showing the channel that was chosen. The fetch of its schedule is interrupted,
+     * unless a refresh or prefetch of the channel waits for the same fetch, then it is left to finish and is saved
+     */
+    private void stopShowingChannel(){
+        pendingReload = null;
+        if(shownLoadOwned.get() && savedChannelSchedules.hasWaitingLoads(shownLoadChannelId)){
+            taskRunner.abandon(SHOWN_CHANNEL_TASK);
+        }
+        else {
+            taskRunner.cancel(SHOWN_CHANNEL_TASK);
+        }
+        stopShowingPages();
+    }
+
+    /**
+     * Stops showing pages of a schedule that is being fetched, the schedule is still fetched and saved
+     */
+    private void stopShowingPages(){
+        if(shownPages != null){
+            shownPages.cancel();
+            shownPages = null;
+        }
+    }
+
+    /**
+     * Gets information about radio-programs that are broadcast on the given channel
+     * If the schedule has to be fetched, the episodes of each page are shown as soon as the page has arrived,
+     * starting with the pages closest to current time
+     * @param channel The channel to get episodes from
+     * @param prefetchNext true if likely next channels should be prefetched when the episodes have been shown
+     */
+    private void getScheduledEpisodes(ChannelModel channel, boolean prefetchNext){
+        nowPlayingWanted = false;
+        long start = System.nanoTime();
+        //pages of a schedule that has to be fetched are shown as they arrive, the publisher buffers the pages
+        //while the event dispatch thread shows the ones before
+        SubmissionPublisher<List<EpisodeModel>> pages = new SubmissionPublisher<>(ForkJoinPool.commonPool(),
+                PAGE_BUFFER_SIZE);
+        AtomicBoolean anyArrived = new AtomicBoolean();
+        EdtSubscriber<List<EpisodeModel>> pageSubscriber = new EdtSubscriber<>(page -> {
+            if(page.isEmpty()){
+                return;
+            }
+            if(anyArrived.compareAndSet(false, true)){
+                Metrics.getSharedMetrics().histogram("ui.firstRows").recordSince(start);
+            }
+            //only the rows of the page are made and inserted, the rows shown before are kept
+            gui.addChannelEpisodes(channel, page);
+        });
+        pages.subscribe(pageSubscriber);
+        //the channel chosen before is no longer wanted, its load is interrupted and never shown
+        stopShowingChannel();
+        shownPages = pageSubscriber;
+        AtomicBoolean owned = new AtomicBoolean();
+        shownLoadChannelId = channel.getId();
+        shownLoadOwned = owned;
+        taskRunner.submit(SHOWN_CHANNEL_TASK, TaskRunner.Priority.USER, () -> {
+            //if the channels schedule has not been taken from the API yet, get it now, else get from cache
+            if (!savedChannelSchedules.hasSavedEpisodeList(channel.getId())) {
+                SwingUtilities.invokeLater(() -> gui.showLoadingScreen());
+            }
+            //a load of the channel that is already running, for example a refresh, is shared instead of repeated
+            EpisodeListCache.LoadResult result;
+            try {
+                result = savedChannelSchedules.getOrLoad(channel.getId(), channelId -> {
+                    //only called for the caller that runs the load, a load that is waited for runs elsewhere
+                    owned.set(true);
+                    //the page is handed on without waiting, the fetch threads are shared with refreshes and
+                    //prefetches. A page that does not fit in the buffer is dropped, it is part of the whole
+                    //schedule that is shown when the load is done
+                    return scheduleRefresher.fetch(channelId,
+                            page -> pages.offer(page, (subscriber, dropped) -> false));
+                });
+            } finally {
+                pages.close();
+            }
+            if (!result.isSuccess()){
+                return new ScheduleLoad(null, result.errorMessage());
+            }
+            List<EpisodeModel> episodes = savedChannelSchedules.getEpisodeList(channel.getId());
+            loadImagesAroundNow(channel.getId());
+            //the texts of the table are computed here so that the event dispatch thread only shows them
+            return new ScheduleLoad(new RadioChannelTableModel(episodes), result.incomplete() ?
+                    result.errorMessage() : null);
+        }, (load, exception) -> {
+            //pages that have not been shown yet are part of the whole schedule shown now
+            pageSubscriber.cancel();
+            if(load == null){
+                load = new ScheduleLoad(null, "Ett oväntat fel uppstod\n");
+            }
+            if(load.tableModel() != null){
+                gui.setCurrentChannel(channel, load.tableModel());
+                Metrics.getSharedMetrics().histogram("ui.showChannel").recordSince(start);
+                refreshScheduler.setVisibleChannel(channel.getId());
+                if(!savedChannelSchedules.isUpToDate(channel.getId(), Instant.now())){
+                    //show the saved schedule directly and replace it when an updated schedule has been fetched
+                    refreshScheduler.refreshNow(channel.getId());
+                }
+                if(prefetchNext){
+                    prefetcher.prefetch(SchedulePrefetcher.pickCandidates(availableChannels, channel.getId(),
+                            visitCounts));
+                }
+                if(load.error() != null){
+                    gui.showErrorMessage(load.error());
+                }
+                ChannelModel reload = pendingReload;
+                pendingReload = null;
+                if(reload != null && reload.getId() == channel.getId()){
+                    //asked for while this load ran, the load is finished so the key is free again
+                    SwingUtilities.invokeLater(() -> getScheduledEpisodes(reload));
+                }
+            }
+            else{
+                //the channel could not be loaded, asking again right away would only show the same error
+                pendingReload = null;
+                gui.showStartScreen();
+                gui.showErrorMessage(load.error());
+            }
+        });
+    }
+
+    /**
+     * The outcome of loading the schedule of a channel
+     * @param tableModel the episodes to show, null if the schedule could not be loaded
+     * @param error why the schedule could not be loaded or is incomplete, null if nothing went wrong
+     */
+    private record ScheduleLoad(RadioChannelTableModel tableModel, String error) {}
+
+    /**
+     * Updates the list of episodes for all channels saved in the EpisodeListCache
+     * the channels are updated concurrently in the background, a channel that can not be updated keeps its
+     * previous list of episodes and does not stop the other channels from being updated.
+     * If some channels could not be updated, tells the view to show which channels and why
+     */
+    public void updateEpisodeLists(){
+        List<Integer> channelIds = new ArrayList<>(savedChannelSchedules.getChannelIds());
+        taskRunner.submit(null, TaskRunner.Priority.USER, () -> scheduleRefresher.refreshAll(channelIds),
+                (report, exception) -> {
+            if(report == null){
+                gui.showErrorMessage("Uppdatering av tablådata misslyckades\n");
+                return;
+            }
+            refreshScheduler.registerResults(report);
+            //channels that were updated are shown even if other channels failed
+            gui.updateCurrentChannel();
+            if(!report.isCompleteSuccess()){
+                List<ScheduleRefresher.ChannelResult> failures = report.getFailures();
+                StringBuilder error = new StringBuilder("Tablådata kunde inte uppdateras för " + failures.size() +
+                        " av " + report.getResults().size() + " kanaler\n");
+                for(ScheduleRefresher.ChannelResult failure : failures){
+                    error.append(getChannelName(failure.channelId())).append(": ").append(failure.errorMessage());
+                }
+                gui.showErrorMessage(error.toString());
+            }
+        });
+    }
+
+    /**
+     * Called after an automatic update, re-renders the shown channel if it was updated.
+     * Failed automatic updates are retried by the RefreshScheduler without disturbing the user
+     * @param report the outcome of the update
+     */
+    private void channelsRefreshed(ScheduleRefresher.RefreshReport report){
+        Integer visibleChannelId = refreshScheduler.getVisibleChannel();
+        for(ScheduleRefresher.ChannelResult result : report.getResults()){
+            if(result.success() && visibleChannelId != null && result.channelId() == visibleChannelId){
+                gui.updateCurrentChannel();
+            }
+        }
+    }
+
+    /**
+     * Fetches what is on air on all channels in the background and shows it in the overview
+     */
+    private void fetchNowPlaying(){
+        if(fetchingNowPlaying){
+            return;
+        }
+        fetchingNowPlaying = true;
+        lastNowPlayingFetch = Instant.now();
+        APIHandler apiHandler = new APIHandler();
+        taskRunner.submit(null, TaskRunner.Priority.USER, apiHandler::getNowPlaying, (fetched, exception) -> {
+            fetchingNowPlaying = false;
+            //channels with a saved schedule can be shown even if the fetch failed
+            nowPlayingIndex.update(availableChannels, fetched == null ? List.of() : fetched, Instant.now());
+            if(nowPlayingTableModel == null){
+                nowPlayingTableModel = new NowPlayingTableModel(nowPlayingIndex.getChannels());
+            }
+            else {
+                nowPlayingTableModel.update(nowPlayingIndex.getChannels());
+            }
+            if(!nowPlayingWanted){
+                return;
+            }
+            gui.showNowPlaying(nowPlayingTableModel);
+            if(fetched == null || apiHandler.isIncomplete()){
+                gui.showErrorMessage(apiHandler.getErrorMessage());
+            }
+            scheduleNowPlayingUpdate();
+        });
+    }
+
+    /**
+     * Moves the overview on to the episodes that are on air now, fetching again if some channel
+     * has no known next episode
+     */
+    private void updateNowPlaying(){
+        if(!gui.isNowPlayingShown()){
+            return;
+        }
+        Instant now = Instant.now();
+        nowPlayingIndex.advance(now);
+        nowPlayingTableModel.update(nowPlayingIndex.getChannels());
+        if(nowPlayingIndex.isMissingEpisodes() && now.isAfter(lastNowPlayingFetch.plus(NOW_PLAYING_FETCH_INTERVAL))){
+            fetchNowPlaying();
+            return;
+        }
+        scheduleNowPlayingUpdate();
+    }
+
+    /**
+     * Starts the timer of the overview so that it fires when the next episode on some channel starts,
+     * or when a new fetch is allowed if that is sooner
+     */
+    private void scheduleNowPlayingUpdate(){
+        Instant now = Instant.now();
+        Instant next = nowPlayingIndex.getNextTransition();
+        Instant nextFetch = lastNowPlayingFetch.plus(NOW_PLAYING_FETCH_INTERVAL);
+        if(nowPlayingIndex.isMissingEpisodes() && (next == null || nextFetch.isBefore(next))){
+            next = nextFetch;
+        }
+        if(next == null){
+            return;
+        }
+        long delay = Math.max(1000, Math.min(Integer.MAX_VALUE, Duration.between(now, next).toMillis()));
+        nowPlayingTimer.setInitialDelay((int) delay);
+        nowPlayingTimer.restart();
+    }
+
+    /**
+     * Starts prefetching the channels that have been opened the most in earlier sessions
+     * and starts the timer for prefetching all channels when the user is idle
+     */
+    private void startPrefetching(){
+        prefetcher.prefetch(SchedulePrefetcher.pickCandidates(availableChannels, -1, visitCounts));
+        idleTimer.start();
+    }
+
+    /**
+     * Remembers the given channels, their order is used for prefetching
+     * and their names are used in messages to the user
+     * @param channels available channels
+     */
+    private void rememberChannels(List<ChannelModel> channels){
+        availableChannels = channels;
+        for(ChannelModel c : channels){
+            channelNames.put(c.getId(), c.getName());
+        }
+    }
+
+    /**
+     * @param channelId id of a channel
+     * @return the name of the channel, or a description with its id if the name is not known
+     */
+    private String getChannelName(int channelId){
+        return channelNames.getOrDefault(channelId, "Kanal " + channelId);
+    }
+
+    /**
+     * Starts loading the cover images of the episode on air and the next few episodes on a channel in the background,
+     * as those are the episodes most likely to be opened. Other covers are loaded when their episode is opened
+     * @param channelId id of the channel
+     */
+    private void loadImagesAroundNow(int channelId){
+        Instant now = Instant.now();
+        List<EpisodeModel> episodes = new ArrayList<>();
+        EpisodeModel onAir = savedChannelSchedules.getNowPlaying(channelId, now);
+        if(onAir != null){
+            episodes.add(onAir);
+        }
+        episodes.addAll(savedChannelSchedules.getNext(channelId, now, PRELOADED_IMAGES - episodes.size()));
+        for(EpisodeModel e : episodes){
+            if(e.getImage() != null){
+                e.getImage().load();
+            }
+        }
+    }
+
     /**
      * Removes episode models with a start time of 6 hours before or 12 hours after current time from the given list
      * @param episodes list containing channel models
      * @return list with only channel models that start within the defined time-span
      */
     private List<EpisodeModel> trimEpisodeList(List<EpisodeModel> episodes){
-        ArrayList<EpisodeModel> result = new ArrayList<>();
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
-        for(EpisodeModel e : episodes){
-            ZonedDateTime episodeStart = ZonedDateTime.ofInstant(e.getStartTime(), ZoneId.of("UTC"));
-            if (episodeStart.isAfter(now.minusHours(6)) && episodeStart.isBefore(now.plusHours(12))){
-                result.add(e);
-            }
-        }
-        return result;
+        return trimEpisodeList(episodes, Instant.now());
+    }
+
+    /**
+     * Removes episode models with a start time of 6 hours before or 12 hours after the given time from the given list
+     * The episodes are found by binary search in a timeline of the list, the result is a view of that timeline
+     * @param episodes list containing channel models
+     * @param now the time that the time-span is counted from
+     * @return list with only channel models that start within the defined time-span, sorted by start time
+     */
+    public static List<EpisodeModel> trimEpisodeList(List<EpisodeModel> episodes, Instant now){
+        return EpisodeTimeline.of(episodes).getWindow(now.minus(Duration.ofHours(6)), now.plus(Duration.ofHours(12)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package controllers;
+
+import models.EpisodeListCache;
+
+import javax.swing.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Decides when the saved schedule of each channel should be updated, instead of updating all channels
+ * at a fixed interval.
+ * The channel that is shown is updated shortly before its current episode ends or before its list goes out of date,
+ * other saved channels are only updated when their list has reached a maximum age.
+ * Channels that fail to update are retried with an increasing delay.
+ * All methods must be called on the event dispatch thread.
+ * @version 1.3 interrupted updates are not retried with a delay
+ * @since 2026-10-18
+ */
+public class RefreshScheduler {
+    //how often the saved channels are checked
+    private static final int CHECK_INTERVAL_MS = 60 * 1000;
+    //the shown channel is updated this long before it would show out of date data
+    private static final Duration VISIBLE_MARGIN = Duration.ofMinutes(2);
+    //channels that are not shown are updated when their list is this old
+    private static final Duration BACKGROUND_MAX_AGE =
+            Duration.ofMinutes(Long.getLong("radioinfo.refresh.backgroundMaxAgeMinutes", 180));
+    private static final Duration MIN_RETRY_DELAY = Duration.ofMinutes(2);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(30);
+    private final EpisodeListCache savedChannelSchedules;
+    private final ScheduleRefresher refresher;
+    private final TaskRunner taskRunner;
+    private final Consumer<ScheduleRefresher.RefreshReport> onRefreshed;
+    private final Timer timer;
+    private final Map<Integer, Instant> retryTimes = new ConcurrentHashMap<>();
+    private final Map<Integer, Duration> retryDelays = new ConcurrentHashMap<>();
+    private Integer visibleChannelId = null;
+    private boolean refreshing = false;
+
+    /**
+     * Creates a scheduler for the channels in the given cache, the scheduler does nothing until it is started
+     * @param savedChannelSchedules cache holding the saved schedules
+     * @param refresher used to update the channels that are due
+     * @param taskRunner runs the updates with refresh priority
+     * @param onRefreshed called on the event dispatch thread after each automatic update
+     */
+    public RefreshScheduler(EpisodeListCache savedChannelSchedules, ScheduleRefresher refresher, TaskRunner taskRunner,
+                            Consumer<ScheduleRefresher.RefreshReport> onRefreshed){
+        this.savedChannelSchedules = savedChannelSchedules;
+        this.refresher = refresher;
+        this.taskRunner = taskRunner;
+        this.onRefreshed = onRefreshed;
+        timer = new Timer(CHECK_INTERVAL_MS, e -> refreshDueChannels());
+        timer.setRepeats(true);
+    }
+
+    /**
+     * Starts checking the saved channels, channels that are already due are updated directly
+     */
+    public void start(){
+        timer.start();
+        refreshDueChannels();
+    }
+
+    /**
+     * Stops checking the saved channels
+     */
+    public void stop(){
+        timer.stop();
+    }
+
+    /**
+     * Sets which channel is shown to the user, the shown channel is updated before all other channels
+     * @param channelId id of the shown channel, or null if no channel is shown
+     */
+    public void setVisibleChannel(Integer channelId){
+        visibleChannelId = channelId;
+    }
+
+    /**
+     * @return id of the channel that is shown to the user, or null if no channel is shown
+     */
+    public Integer getVisibleChannel(){
+        return visibleChannelId;
+    }
+
+    /**
+     * Updates the schedule of one channel in the background right away, unless it has failed recently
+     * @param channelId id of the channel to update
+     */
+    public void refreshNow(int channelId){
+        Instant retryTime = retryTimes.get(channelId);
+        if(retryTime != null && Instant.now().isBefore(retryTime)){
+            return;
+        }
+        refresh(List.of(channelId), false);
+    }
+
+    /**
+     * Registers the outcome of an update that was not started by this scheduler, so that failed channels
+     * are retried and updated channels are not updated again too soon
+     * @param report the outcome of the update
+     */
+    public void registerResults(ScheduleRefresher.RefreshReport report){
+        Instant now = Instant.now();
+        for(ScheduleRefresher.ChannelResult result : report.getResults()){
+            if(result.cancelled()){
+                //an interrupted update says nothing about the channel, it is due again at the next check
+                continue;
+            }
+            if(result.success()){
+                retryTimes.remove(result.channelId());
+                retryDelays.remove(result.channelId());
+            }
+            else {
+                Duration delay = retryDelays.getOrDefault(result.channelId(), MIN_RETRY_DELAY);
+                retryTimes.put(result.channelId(), now.plus(delay));
+                Duration nextDelay = delay.multipliedBy(2);
+                retryDelays.put(result.channelId(), nextDelay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : nextDelay);
+            }
+        }
+    }
+
+    /**
+     * Finds the channels whose schedules should be updated now
+     * @param now current time
+     * @return ids of the channels that are due, the shown channel first
+     */
+    List<Integer> getDueChannels(Instant now){
+        List<Integer> due = new ArrayList<>();
+        for(int channelId : savedChannelSchedules.getChannelIds()){
+            Instant retryTime = retryTimes.get(channelId);
+            if(retryTime != null && now.isBefore(retryTime)){
+                continue;
+            }
+            Instant fetchTime = savedChannelSchedules.getFetchTime(channelId);
+            if(fetchTime == null){
+                continue;
+            }
+            if(visibleChannelId != null && visibleChannelId == channelId){
+                Instant refreshTime = savedChannelSchedules.getExpiryTime(channelId);
+                Instant currentEnd = savedChannelSchedules.getCurrentEpisodeEnd(channelId, now);
+                //update when the current episode ends, unless the list was fetched close to that time
+                if(currentEnd != null && currentEnd.isBefore(refreshTime) &&
+                        fetchTime.isBefore(currentEnd.minus(VISIBLE_MARGIN))){
+                    refreshTime = currentEnd;
+                }
+                if(!now.isBefore(refreshTime.minus(VISIBLE_MARGIN))){
+                    due.add(0, channelId);
+                }
+            }
+            else if(!now.isBefore(fetchTime.plus(BACKGROUND_MAX_AGE))){
+                due.add(channelId);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Updates the channels that are due in the background, unless an update started by this scheduler is running
+     */
+    private void refreshDueChannels(){
+        Instant now = Instant.now();
+        //episodes that have passed are dropped from the saved lists as time goes by
+        savedChannelSchedules.evictOldEpisodes(now);
+        if(refreshing){
+            return;
+        }
+        List<Integer> due = getDueChannels(now);
+        if(due.isEmpty()){
+            return;
+        }
+        refreshing = true;
+        refresh(due, true);
+    }
+
+    /**
+     * Updates the given channels in the background and reports the outcome when done
+     * @param channelIds ids of the channels to update
+     * @param scheduled true if the update was started by the periodic check
+     */
+    private void refresh(List<Integer> channelIds, boolean scheduled){
+        taskRunner.submit(null, TaskRunner.Priority.REFRESH, () -> refresher.refreshAll(channelIds), (report, error) -> {
+            if(scheduled){
+                refreshing = false;
+            }
+            if(report != null){
+                registerResults(report);
+                onRefreshed.accept(report);
+            }
+            //if the refresh failed the channels are still due and are tried again at the next check
+        });
+    }
+}
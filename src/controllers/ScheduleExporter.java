@@ -0,0 +1,381 @@
+package controllers;
+
+import models.APIHandler;
+import models.BackgroundExecutors;
+import models.ChannelModel;
+import models.EpisodeModel;
+import models.EpisodeTimeline;
+import models.LatencyHistogram;
+import models.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes the schedules of all channels as CSV or JSON Lines without showing the user interface, for example to
+ * feed other systems from cron. Started by Main with the argument --export, see USAGE for the other arguments.
+ * The channels are fetched at the same time, at most radioinfo.export.parallelism at once (16 by default), and
+ * each schedule is written as soon as it has been fetched and is then forgotten, so the memory used does not grow
+ * with the number of channels. How long the export took and how much was written is reported on standard error.
+ * @version 1.1 the export defaults are set once, by Main
+ * @since 2026-10-18
+ */
+public class ScheduleExporter {
+    private static final int PARALLELISM = Integer.getInteger("radioinfo.export.parallelism", 16);
+    private static final String USAGE = "Användning: java -jar radioinfo.jar --export [--format csv|jsonl] " +
+            "[--output fil]\nUtan --output skrivs tablåerna till standard ut.\n";
+    private static final String CSV_HEADER = "channelId,channelName,episodeId,programName,title,subtitle," +
+            "startTime,endTime,description,imageUrl";
+    private final Format format;
+    private final PrintStream log;
+
+    /**
+     * The formats schedules can be written in, one row or line per episode
+     */
+    public enum Format {
+        CSV,
+        JSONL
+    }
+
+    /**
+     * @param format the format to write the schedules in
+     * @param log where failed channels and the summary are reported
+     */
+    public ScheduleExporter(Format format, PrintStream log){
+        this.format = format;
+        this.log = log;
+    }
+
+    /**
+     * Runs an export as given by command line arguments.
+     * useExportDefaults must have been called before, see its description
+     * @param args the arguments that followed --export
+     * @return exit code: 0 if every channel was written, 1 if some channel or the channel list could not be
+     * fetched or the output could not be written, 2 if the arguments were wrong
+     */
+    public static int run(String[] args){
+        Format format = Format.CSV;
+        Path output = null;
+        for(int i = 0 ; i < args.length ; i++){
+            if(i + 1 < args.length && args[i].equals("--format")){
+                String name = args[++i].toUpperCase(Locale.ROOT);
+                if(!name.equals("CSV") && !name.equals("JSONL")){
+                    System.err.print(USAGE);
+                    return 2;
+                }
+                format = Format.valueOf(name);
+            }
+            else if(i + 1 < args.length && args[i].equals("--output")){
+                output = args[++i].equals("-") ? null : Path.of(args[i]);
+            }
+            else {
+                System.err.print(USAGE);
+                return 2;
+            }
+        }
+        ScheduleExporter exporter = new ScheduleExporter(format, System.err);
+        try {
+            if(output == null){
+                boolean complete = exporter.export(System.out);
+                System.out.flush();
+                return complete ? 0 : 1;
+            }
+            return exporter.exportToFile(output) ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Exporten misslyckades: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Sets the system properties that suit an export better than the user interface, unless they have been set.
+     * Must be called before any model class is loaded, as the properties are read once in static fields such as
+     * the parallelism of PageFetcher and the response caches of APIHandler. Setting them later has no effect,
+     * which is why Main calls this first and run does not call it again
+     */
+    public static void useExportDefaults(){
+        //the export runs from cron without a display
+        System.setProperty("java.awt.headless", "true");
+        //each page is fetched once, remembering pages for conditional requests would only use memory
+        if(System.getProperty("radioinfo.conditional.maxUrls") == null){
+            System.setProperty("radioinfo.conditional.maxUrls", "0");
+        }
+        //nobody waits for a single page, so more requests are sent at once than for the user interface
+        if(System.getProperty("radioinfo.fetch.parallelism") == null){
+            System.setProperty("radioinfo.fetch.parallelism", Integer.toString(PARALLELISM));
+        }
+    }
+
+    /**
+     * Exports to a file, which is only replaced when everything that could be fetched has been written,
+     * so that a reader of the file never sees half an export
+     * @param file the file to write
+     * @return true if every channel was written
+     * @throws IOException if the channels could not be fetched or the file could not be written, the file is
+     * then left as it was
+     */
+    public boolean exportToFile(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "export", ".tmp");
+        try {
+            boolean complete;
+            try(OutputStream out = Files.newOutputStream(temp)){
+                complete = export(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return complete;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Fetches the schedules of all channels and writes them to the given stream as they arrive.
+     * The schedule of each channel is written in order of start time, the channels in the order they arrive
+     * @param out the stream to write to, it is flushed but not closed
+     * @return true if every channel was written, false if some channel could not be fetched
+     * @throws IOException if the channels could not be fetched or the stream could not be written
+     */
+    public boolean export(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        //only the channels of this export are counted, so the times are not taken from the shared Metrics
+        LatencyHistogram channelTimes = new LatencyHistogram();
+        Metrics metrics = Metrics.getSharedMetrics();
+        long requestsBefore = metrics.counter("http.requests").sum();
+        long receivedBefore = metrics.counter("http.bytesReceived").sum();
+        APIHandler apiHandler = new APIHandler();
+        List<ChannelModel> channels = apiHandler.getChannelModels();
+        if(channels == null){
+            throw new IOException("Kanalerna kunde inte hämtas: " + apiHandler.getErrorMessage().strip());
+        }
+        CountingOutputStream counted = new CountingOutputStream(out);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(counted, StandardCharsets.UTF_8), 1 << 16);
+        if(format == Format.CSV){
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        //a permit is taken before a channel is fetched and given back when it has been written, so schedules
+        //that have been fetched can not pile up if writing is slower than fetching
+        Semaphore unwritten = new Semaphore(PARALLELISM);
+        ExecutorService executor = BackgroundExecutors.create("schedule-export", PARALLELISM);
+        CompletionService<ChannelSchedule> fetched = new ExecutorCompletionService<>(executor);
+        for(ChannelModel channel : channels){
+            fetched.submit(() -> {
+                unwritten.acquire();
+                return fetch(channel, channelTimes);
+            });
+        }
+        int failures = 0;
+        long episodeCount = 0;
+        try {
+            for(int i = 0 ; i < channels.size() ; i++){
+                ChannelSchedule schedule = fetched.take().get();
+                try {
+                    if(schedule.episodes() != null){
+                        for(EpisodeModel episode : schedule.episodes()){
+                            writeEpisode(writer, schedule.channel(), episode);
+                        }
+                        episodeCount += schedule.episodes().size();
+                    }
+                } finally {
+                    unwritten.release();
+                }
+                if(schedule.error() != null){
+                    failures++;
+                    log.print(schedule.channel().getName() + " (" + schedule.channel().getId() + "): " +
+                            schedule.error());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exporten avbröts", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ett oväntat fel uppstod", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            writer.flush();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LatencyHistogram.Snapshot times = channelTimes.snapshot();
+        log.printf(Locale.ROOT, "%d avsnitt från %d av %d kanaler på %.2f s (%.0f avsnitt/s), %.1f MB skrivet " +
+                        "(%.1f MB/s)%n%d anrop till API:t, %.1f MB hämtat, tid per kanal: median %d ms, 90 %% %d ms, " +
+                        "max %d ms%n",
+                episodeCount, channels.size() - failures, channels.size(), seconds, episodeCount / seconds,
+                counted.count / 1e6, counted.count / 1e6 / seconds,
+                metrics.counter("http.requests").sum() - requestsBefore,
+                (metrics.counter("http.bytesReceived").sum() - receivedBefore) / 1e6,
+                times.percentileMicros(50) / 1000, times.percentileMicros(90) / 1000, times.maxMicros() / 1000);
+        return failures == 0;
+    }
+
+    /**
+     * Fetches the schedule of one channel, an incomplete schedule is written and reported as a failure
+     */
+    private ChannelSchedule fetch(ChannelModel channel, LatencyHistogram channelTimes){
+        long start = System.nanoTime();
+        APIHandler apiHandler = new APIHandler();
+        try {
+            List<EpisodeModel> episodes = apiHandler.getScheduledEpisodeModels(channel.getId());
+            if(episodes == null){
+                return new ChannelSchedule(channel, null, apiHandler.getErrorMessage());
+            }
+            return new ChannelSchedule(channel, EpisodeTimeline.of(episodes).getEpisodes(),
+                    apiHandler.isIncomplete() ? apiHandler.getErrorMessage() : null);
+        } catch (RuntimeException e) {
+            return new ChannelSchedule(channel, null, "Ett oväntat fel uppstod\n");
+        } finally {
+            channelTimes.recordSince(start);
+        }
+    }
+
+    private void writeEpisode(Writer writer, ChannelModel channel, EpisodeModel episode) throws IOException {
+        if(format == Format.CSV){
+            writer.write(Integer.toString(channel.getId()));
+            writer.write(',');
+            writeCsv(writer, channel.getName());
+            writer.write(',');
+            writer.write(Integer.toString(episode.getId()));
+            writer.write(',');
+            writeCsv(writer, episode.getProgramName());
+            writer.write(',');
+            writeCsv(writer, episode.getTitle());
+            writer.write(',');
+            writeCsv(writer, episode.getSubTitle());
+            writer.write(',');
+            writeCsv(writer, toText(episode.getStartTime()));
+            writer.write(',');
+            writeCsv(writer, toText(episode.getEndTime()));
+            writer.write(',');
+            writeCsv(writer, episode.getDescription());
+            writer.write(',');
+            writeCsv(writer, episode.getImageUrl());
+        }
+        else {
+            writer.write("{\"channelId\":");
+            writer.write(Integer.toString(channel.getId()));
+            writer.write(",\"channelName\":");
+            writeJson(writer, channel.getName());
+            writer.write(",\"episodeId\":");
+            writer.write(Integer.toString(episode.getId()));
+            writer.write(",\"programName\":");
+            writeJson(writer, episode.getProgramName());
+            writer.write(",\"title\":");
+            writeJson(writer, episode.getTitle());
+            writer.write(",\"subtitle\":");
+            writeJson(writer, episode.getSubTitle());
+            writer.write(",\"startTime\":");
+            writeJson(writer, toText(episode.getStartTime()));
+            writer.write(",\"endTime\":");
+            writeJson(writer, toText(episode.getEndTime()));
+            writer.write(",\"description\":");
+            writeJson(writer, episode.getDescription());
+            writer.write(",\"imageUrl\":");
+            writeJson(writer, episode.getImageUrl());
+            writer.write('}');
+        }
+        writer.write('\n');
+    }
+
+    private static String toText(Instant time){
+        return time == null ? null : time.toString();
+    }
+
+    /**
+     * Writes a CSV field, quoted if it contains a separator, a quote or a line break, empty if it is null
+     */
+    private static void writeCsv(Writer writer, String value) throws IOException {
+        if(value == null){
+            return;
+        }
+        boolean quote = false;
+        for(int i = 0 ; i < value.length() && !quote ; i++){
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if(!quote){
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Writes a JSON string, or null
+     */
+    private static void writeJson(Writer writer, String value) throws IOException {
+        if(value == null){
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for(int i = 0 ; i < value.length() ; i++){
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if(c < 0x20){
+                        writer.write(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * The fetched schedule of one channel
+     * @param channel the channel
+     * @param episodes the episodes in order of start time, null if the schedule could not be fetched
+     * @param error why the schedule could not be fetched or is incomplete, null if nothing went wrong
+     */
+    private record ChannelSchedule(ChannelModel channel, List<EpisodeModel> episodes, String error) {}
+
+    /**
+     * Counts the bytes written through it
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out){
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package controllers;
+
+import models.ChannelModel;
+import models.EpisodeListCache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches the schedules of channels that the user is likely to open next, before they are opened,
+ * so that they can be shown from the EpisodeListCache without waiting for the API.
+ * Prefetching runs as the lowest priority tasks of a TaskRunner, which limits how many channels are fetched
+ * at a time and holds prefetches back while the user waits for something. It is cancelled as soon as the user
+ * asks for something else.
+ * @version 1.2 neighbours are taken from the submenu of the opened channel
+ * @since 2026-10-18
+ */
+public class SchedulePrefetcher {
+    //number of channels on each side of the opened channel in its submenu that are prefetched
+    private static final int NEIGHBOURS = 2;
+    //number of most visited channels that are prefetched
+    private static final int MOST_VISITED = 5;
+    private final EpisodeListCache savedChannelSchedules;
+    private final ScheduleRefresher refresher;
+    private final TaskRunner taskRunner;
+    private final List<TaskRunner.Task<Void>> pending = new ArrayList<>();
+
+    /**
+     * Creates a prefetcher that saves prefetched schedules through the given refresher
+     * @param savedChannelSchedules cache holding the saved schedules
+     * @param refresher used to fetch and save a channels schedule
+     * @param taskRunner runs the prefetches with prefetch priority
+     */
+    public SchedulePrefetcher(EpisodeListCache savedChannelSchedules, ScheduleRefresher refresher,
+                              TaskRunner taskRunner){
+        this.savedChannelSchedules = savedChannelSchedules;
+        this.refresher = refresher;
+        this.taskRunner = taskRunner;
+    }
+
+    /**
+     * Picks the channels that are likely to be opened after the given channel: the channels next to it in its
+     * submenu followed by the channels that have been opened the most
+     * @param channels all channels in the order of the channel list, which is also their order within each submenu
+     * @param openedChannelId id of the channel that was just opened, or -1 if no channel has been opened
+     * @param visitCounts map from channel id to the number of times the channel has been opened
+     * @return ids of the channels to prefetch, the most likely first
+     */
+    public static List<Integer> pickCandidates(List<ChannelModel> channels, int openedChannelId,
+                                               Map<Integer, Integer> visitCounts){
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for(ChannelModel opened : channels){
+            if(opened.getId() != openedChannelId){continue;}
+            //the neighbours in the menu are the channels of the same submenu, in list order
+            List<ChannelModel> menu = channels.stream()
+                    .filter(c -> c.getMenuGroup().equals(opened.getMenuGroup()))
+                    .toList();
+            int i = menu.indexOf(opened);
+            for(int distance = 1 ; distance <= NEIGHBOURS ; distance++){
+                if(i + distance < menu.size()){
+                    candidates.add(menu.get(i + distance).getId());
+                }
+                if(i - distance >= 0){
+                    candidates.add(menu.get(i - distance).getId());
+                }
+            }
+        }
+        visitCounts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+                .limit(MOST_VISITED)
+                .forEach(entry -> candidates.add(entry.getKey()));
+        candidates.remove(openedChannelId);
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * Cancels any running prefetch and starts prefetching the given channels in order.
+     * Channels that already have an up to date schedule saved are skipped.
+     * @param channelIds ids of the channels to prefetch, the most likely first
+     */
+    public synchronized void prefetch(List<Integer> channelIds){
+        cancel();
+        for(int channelId : channelIds){
+            pending.add(taskRunner.submit(null, TaskRunner.Priority.PREFETCH, () -> {
+                if(!savedChannelSchedules.isUpToDate(channelId, Instant.now())){
+                    refresher.refresh(channelId);
+                }
+                return null;
+            }, null));
+        }
+    }
+
+    /**
+     * Cancels all prefetching, channels that are being fetched are interrupted and nothing is saved for them
+     */
+    public synchronized void cancel(){
+        for(TaskRunner.Task<Void> task : pending){
+            task.cancel();
+        }
+        pending.clear();
+    }
+}
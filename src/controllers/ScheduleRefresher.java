@@ -0,0 +1,220 @@
+package controllers;
+
+import models.APIHandler;
+import models.BackgroundExecutors;
+import models.DiskCache;
+import models.EpisodeListCache;
+import models.EpisodeModel;
+import models.Metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Updates the saved schedules of several channels at the same time.
+ * Each channel is updated on its own, a channel that fails keeps its last saved schedule
+ * and does not stop the other channels from being updated.
+ * The time to update each channel and each group of channels is recorded in the shared Metrics.
+ * @version 1.4 an interrupted refreshAll stops waiting and reports the remaining channels as cancelled
+ * @since 2026-10-18
+ */
+public class ScheduleRefresher {
+    private final EpisodeListCache savedChannelSchedules;
+    private final DiskCache diskCache;
+    private final UnaryOperator<List<EpisodeModel>> trimmer;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Metrics metrics = Metrics.getSharedMetrics();
+
+    /**
+     * Creates a refresher that saves updated schedules in the given caches
+     * @param savedChannelSchedules cache holding the schedules to update
+     * @param diskCache disk cache that updated schedules are also saved to
+     * @param trimmer applied to each fetched schedule before it is saved
+     * @param parallelism the maximum number of channels to update at the same time
+     */
+    public ScheduleRefresher(EpisodeListCache savedChannelSchedules, DiskCache diskCache,
+                             UnaryOperator<List<EpisodeModel>> trimmer, int parallelism){
+        this.savedChannelSchedules = savedChannelSchedules;
+        this.diskCache = diskCache;
+        this.trimmer = trimmer;
+        this.executor = BackgroundExecutors.create("schedule-refresher", parallelism);
+        this.permits = new Semaphore(Math.max(1, parallelism));
+    }
+
+    /**
+     * Updates the schedules of the given channels and waits until all of them are done
+     * @param channelIds ids of the channels to update
+     * @return the outcome for every channel, in the same order as the given ids
+     */
+    public RefreshReport refreshAll(Collection<Integer> channelIds){
+        Instant start = Instant.now();
+        List<Future<ChannelResult>> futures = new ArrayList<>();
+        for(int channelId : channelIds){
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return refresh(channelId);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        List<ChannelResult> results = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(channelIds);
+        boolean interrupted = false;
+        for(int i = 0 ; i < futures.size() ; i++){
+            if(interrupted){
+                //the remaining channels were cancelled with the rest, there is nothing to wait for
+                results.add(ChannelResult.cancelled(ids.get(i), Duration.ZERO));
+                continue;
+            }
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                interrupted = true;
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                results.add(ChannelResult.cancelled(ids.get(i), Duration.ZERO));
+            } catch (CancellationException e) {
+                results.add(ChannelResult.cancelled(ids.get(i), Duration.ZERO));
+            } catch (ExecutionException e) {
+                results.add(ChannelResult.failure(ids.get(i), Duration.ZERO, "Ett oväntat fel uppstod\n"));
+            }
+        }
+        Duration wallTime = Duration.between(start, Instant.now());
+        metrics.histogram("refresh.all").record(wallTime.toNanos());
+        return new RefreshReport(results, wallTime);
+    }
+
+    /**
+     * Updates the schedule of one channel through the EpisodeListCache, so that it shares the fetch with
+     * anyone else loading the same channel at the same time
+     * An incomplete schedule only replaces the saved schedule if there is no saved schedule
+     * @param channelId id of the channel to update
+     * @return the outcome of the update
+     */
+    ChannelResult refresh(int channelId){
+        Instant start = Instant.now();
+        EpisodeListCache.LoadResult result = savedChannelSchedules.load(channelId, this::fetch);
+        Duration latency = Duration.between(start, Instant.now());
+        metrics.histogram("refresh.channel").record(latency.toNanos());
+        if(result.cancelled()){
+            return ChannelResult.cancelled(channelId, latency);
+        }
+        if(!result.isSuccess() || result.incomplete()){
+            metrics.counter("refresh.failures").increment();
+            return ChannelResult.failure(channelId, latency, result.errorMessage());
+        }
+        return new ChannelResult(channelId, true, false, latency, "");
+    }
+
+    /**
+     * Fetches the schedule of one channel from the API and trims it, complete schedules are saved to disk.
+     * Used as the loader for the EpisodeListCache, which saves the schedule in memory
+     * @param channelId id of the channel to fetch
+     * @return the outcome of the fetch
+     */
+    public EpisodeListCache.LoadResult fetch(int channelId){
+        return fetch(channelId, null);
+    }
+
+    /**
+     * Fetches the schedule of one channel in the same way as fetch(channelId), and also hands the trimmed
+     * episodes of each page to a listener as soon as the page has been parsed
+     * @param channelId id of the channel to fetch
+     * @param pageListener given the trimmed episodes of each page, on the thread that read it, or null.
+     *                     It must not block, as that thread is needed for the other requests
+     * @return the outcome of the fetch
+     */
+    public EpisodeListCache.LoadResult fetch(int channelId, Consumer<List<EpisodeModel>> pageListener){
+        APIHandler apiHandler = new APIHandler();
+        List<EpisodeModel> episodes = apiHandler.getScheduledEpisodeModels(channelId,
+                pageListener == null ? null : page -> pageListener.accept(trimmer.apply(page)));
+        if(Thread.currentThread().isInterrupted()){
+            //the fetch was cancelled, do not save what might be a partly fetched schedule
+            return EpisodeListCache.LoadResult.cancelledLoad();
+        }
+        if(episodes == null){
+            return EpisodeListCache.LoadResult.failure(apiHandler.getErrorMessage());
+        }
+        episodes = trimmer.apply(episodes);
+        Instant fetchTime = Instant.now();
+        if(apiHandler.isIncomplete()){
+            return new EpisodeListCache.LoadResult(episodes, fetchTime, true, false, apiHandler.getErrorMessage());
+        }
+        diskCache.saveEpisodes(channelId, episodes, fetchTime);
+        return EpisodeListCache.LoadResult.success(episodes, fetchTime);
+    }
+
+    /**
+     * The outcome of updating one channel
+     * @param channelId id of the channel
+     * @param success true if a new schedule was saved
+     * @param cancelled true if the update was interrupted before it finished, which is not counted as a failure
+     * @param latency time it took to fetch the schedule
+     * @param errorMessage description of what went wrong, empty if the update succeeded
+     */
+    public record ChannelResult(int channelId, boolean success, boolean cancelled, Duration latency,
+                                String errorMessage) {
+        static ChannelResult failure(int channelId, Duration latency, String errorMessage){
+            return new ChannelResult(channelId, false, false, latency, errorMessage);
+        }
+
+        static ChannelResult cancelled(int channelId, Duration latency){
+            return new ChannelResult(channelId, false, true, latency, "Uppdateringen avbröts\n");
+        }
+    }
+
+    /**
+     * The outcome of updating a number of channels
+     */
+    public static class RefreshReport {
+        private final List<ChannelResult> results;
+        private final Duration wallTime;
+
+        RefreshReport(List<ChannelResult> results, Duration wallTime){
+            this.results = Collections.unmodifiableList(results);
+            this.wallTime = wallTime;
+        }
+
+        /**
+         * @return the outcome for every channel
+         */
+        public List<ChannelResult> getResults(){
+            return results;
+        }
+
+        /**
+         * @return the outcomes for the channels that could not be updated
+         */
+        public List<ChannelResult> getFailures(){
+            return results.stream().filter(r -> !r.success()).toList();
+        }
+
+        /**
+         * @return true if every channel was updated
+         */
+        public boolean isCompleteSuccess(){
+            return results.stream().allMatch(ChannelResult::success);
+        }
+
+        /**
+         * @return the time from the start of the update until the last channel was done
+         */
+        public Duration getWallTime(){
+            return wallTime;
+        }
+    }
+}
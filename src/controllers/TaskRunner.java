@@ -0,0 +1,294 @@
+package controllers;
+
+import models.BackgroundExecutors;
+import models.Metrics;
+
+import javax.swing.*;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the background work of the application and hands the results to the event dispatch thread.
+ * Work the user is waiting for starts at once. A task can be given a key, and a newer task with the same key
+ * supersedes the older one: the older task is interrupted and its result is never handed on, so the last channel
+ * that was clicked is the one that is shown. A task can instead be abandoned, it is then left to finish its work
+ * but its result is never handed on either. Refreshes and prefetches wait in a queue and only a few of each run
+ * at the same time, prefetches do not start while the user is waiting for something.
+ * The tasks run on virtual threads when the JDK has them. The number of queued and running tasks of each priority
+ * can be read through the shared Metrics as tasks.priority.queued and tasks.priority.running.
+ * All methods can be called from any thread.
+ * @version 1.2 superseded tasks are interrupted, tasks can be abandoned on request
+ * @since 2026-10-18
+ */
+public class TaskRunner {
+    private static final int REFRESH_LIMIT = Integer.getInteger("radioinfo.tasks.refreshLimit", 2);
+    private static final int PREFETCH_LIMIT = Integer.getInteger("radioinfo.prefetch.parallelism", 2);
+    private final ExecutorService executor = BackgroundExecutors.create("task-runner", 16);
+    private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+            Comparator.comparing((Task<?> task) -> task.priority).thenComparingLong(task -> task.sequence));
+    private final Map<String, Task<?>> keyedTasks = new HashMap<>();
+    private final Map<Priority, Integer> running = new EnumMap<>(Priority.class);
+    private final Map<Priority, Integer> queued = new EnumMap<>(Priority.class);
+    private long nextSequence = 0;
+
+    /**
+     * How urgent a task is, the most urgent first
+     */
+    public enum Priority {
+        //work the user is waiting for, never queued
+        USER,
+        //updates of saved data
+        REFRESH,
+        //guesses of what the user will want next
+        PREFETCH
+    }
+
+    /**
+     * Given the outcome of a task on the event dispatch thread
+     * @param <T> the type of the result
+     */
+    public interface Completion<T> {
+        /**
+         * @param result the result of the task, null if it failed
+         * @param error the exception the task failed with, null if it succeeded
+         */
+        void done(T result, Exception error);
+    }
+
+    /**
+     * Creates a runner and adds its queued and running counts to the shared Metrics
+     */
+    public TaskRunner(){
+        Metrics metrics = Metrics.getSharedMetrics();
+        for(Priority priority : Priority.values()){
+            running.put(priority, 0);
+            queued.put(priority, 0);
+            String name = "tasks." + priority.name().toLowerCase(Locale.ROOT);
+            metrics.gauge(name + ".queued", () -> getQueuedCount(priority));
+            metrics.gauge(name + ".running", () -> getRunningCount(priority));
+        }
+    }
+
+    /**
+     * Runs a task in the background
+     * @param key a task with the same key that has not finished is superseded by this task, null to not supersede
+     * @param priority how urgent the task is
+     * @param work the work to do, it should stop when its thread is interrupted
+     * @param completion given the outcome on the event dispatch thread unless the task is cancelled, or null
+     * @return the task, which can be cancelled
+     */
+    public synchronized <T> Task<T> submit(String key, Priority priority, Callable<T> work, Completion<T> completion){
+        Task<T> task = new Task<>(key, priority, nextSequence++, work, completion);
+        if(key != null){
+            Task<?> superseded = keyedTasks.put(key, task);
+            if(superseded != null){
+                Metrics.getSharedMetrics().counter("tasks.superseded").increment();
+                superseded.cancel();
+            }
+        }
+        queue.add(task);
+        queued.merge(priority, 1, Integer::sum);
+        startQueuedTasks();
+        return task;
+    }
+
+    /**
+     * Cancels the task with the given key if it has not finished, interrupting it if it is running
+     * @param key key the task was submitted with
+     */
+    public synchronized void cancel(String key){
+        Task<?> task = keyedTasks.remove(key);
+        if(task != null){
+            task.cancel();
+        }
+    }
+
+    /**
+     * Abandons the task with the given key if it has not finished, a running task is left to finish its work
+     * @param key key the task was submitted with
+     */
+    public synchronized void abandon(String key){
+        Task<?> task = keyedTasks.remove(key);
+        if(task != null){
+            task.abandon();
+        }
+    }
+
+    /**
+     * @param key key a task may have been submitted with
+     * @return true if a task with the key is queued, running or waiting for its completion to be called
+     */
+    public synchronized boolean hasTask(String key){
+        return keyedTasks.containsKey(key);
+    }
+
+    /**
+     * @param priority a priority
+     * @return number of tasks with the priority that wait to be started
+     */
+    public synchronized int getQueuedCount(Priority priority){
+        return queued.get(priority);
+    }
+
+    /**
+     * @param priority a priority
+     * @return number of tasks with the priority that are running
+     */
+    public synchronized int getRunningCount(Priority priority){
+        return running.get(priority);
+    }
+
+    /**
+     * Starts the queued tasks that may run, in order of priority
+     */
+    private synchronized void startQueuedTasks(){
+        while(!queue.isEmpty() && mayStart(queue.peek().priority)){
+            Task<?> task = queue.poll();
+            queued.merge(task.priority, -1, Integer::sum);
+            running.merge(task.priority, 1, Integer::sum);
+            task.start();
+        }
+    }
+
+    private boolean mayStart(Priority priority){
+        return switch (priority) {
+            case USER -> true;
+            case REFRESH -> running.get(Priority.REFRESH) < REFRESH_LIMIT;
+            //a queued prefetch waits behind queued refreshes, which are ordered before it
+            case PREFETCH -> running.get(Priority.USER) == 0 && running.get(Priority.PREFETCH) < PREFETCH_LIMIT;
+        };
+    }
+
+    /**
+     * Called when a started task has finished, been cancelled or been interrupted
+     */
+    private synchronized void finished(Task<?> task){
+        running.merge(task.priority, -1, Integer::sum);
+        startQueuedTasks();
+    }
+
+    /**
+     * Frees the key of a task that is done, including its completion, so that hasTask no longer finds it
+     */
+    private synchronized void forget(Task<?> task){
+        if(task.key != null){
+            keyedTasks.remove(task.key, task);
+        }
+    }
+
+    /**
+     * A task given to the runner
+     * @param <T> the type of the result
+     */
+    public class Task<T> {
+        private final String key;
+        private final Priority priority;
+        private final long sequence;
+        private final Callable<T> work;
+        private final Completion<T> completion;
+        private boolean started = false;
+        //the thread running the work, only set while the work runs
+        private Thread thread;
+        private volatile boolean cancelled = false;
+        //true if the task was cancelled, so its work is not started, an abandoned task still does its work
+        private volatile boolean stopped = false;
+
+        private Task(String key, Priority priority, long sequence, Callable<T> work, Completion<T> completion){
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+            this.completion = completion;
+        }
+
+        /**
+         * Cancels the task: removes it from the queue or interrupts it if it is running.
+         * Its completion is not called, not even if the task had finished but the completion had not run yet
+         */
+        public void cancel(){
+            stop(true);
+        }
+
+        /**
+         * Abandons the task: removes it from the queue, or lets it finish its work if it has been started.
+         * Its completion is not called
+         */
+        public void abandon(){
+            stop(false);
+        }
+
+        private void stop(boolean interrupt){
+            synchronized (TaskRunner.this){
+                cancelled = true;
+                stopped |= interrupt;
+                if(thread != null){
+                    if(interrupt){
+                        thread.interrupt();
+                    }
+                }
+                else if(!started && queue.remove(this)){
+                    queued.merge(priority, -1, Integer::sum);
+                }
+                if(key != null){
+                    keyedTasks.remove(key, this);
+                }
+            }
+        }
+
+        /**
+         * @return true if the task has been cancelled, abandoned or superseded
+         */
+        public boolean isCancelled(){
+            return cancelled;
+        }
+
+        private void start(){
+            started = true;
+            executor.execute(this::run);
+        }
+
+        private void run(){
+            T result = null;
+            Exception error = null;
+            synchronized (TaskRunner.this){
+                thread = Thread.currentThread();
+            }
+            try {
+                if(!stopped){
+                    result = work.call();
+                }
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                synchronized (TaskRunner.this){
+                    thread = null;
+                    //an interrupt meant for this task must not reach the next task on a pooled thread
+                    Thread.interrupted();
+                }
+                finished(this);
+            }
+            if(cancelled || completion == null){
+                forget(this);
+                return;
+            }
+            T finalResult = result;
+            Exception finalError = error;
+            //the key is kept until the result has been handed on
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    if(!cancelled){
+                        completion.done(finalResult, finalError);
+                    }
+                } finally {
+                    forget(this);
+                }
+            });
+        }
+    }
+}
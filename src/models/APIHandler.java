@@ -6,182 +6,229 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.imageio.ImageIO;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import java.awt.*;
+import javax.xml.stream.XMLStreamException;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
-import java.net.URL;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 /**
  * Handles all interaction between the application and the Swedish public radio API
  * @author Samuel Sandlund
- * @version 1.1 getImage return type changed from ImageIcon to abstract Image
+ * @version 2.4 saved schedule pages of days that are no longer fetched are forgotten
  * @since 2023-02-07
  */
 public class APIHandler {
     private String errorMessage = "ERROR: ";
+    private boolean incomplete = false;
+    //the zone of the days that schedules are fetched for
+    private static final ZoneId SCHEDULE_ZONE = ZoneId.of("UTC");
+    private static final String BASE_URL = System.getProperty("radioinfo.api.baseUrl", "http://api.sr.se");
+    private static volatile HttpTransport transport = new UrlConnectionTransport();
+    private static final boolean USE_DOM_PARSER = "dom".equals(System.getProperty("radioinfo.parser"));
+    private static final ConditionalResponseCache<StreamingXMLParser.ParsedPage<ChannelModel>> channelResponses =
+            new ConditionalResponseCache<>(64);
+    //only holds the pages of the days that are still fetched, pages of earlier days are forgotten
+    private static final ConditionalResponseCache<StreamingXMLParser.ParsedPage<EpisodeModel>> scheduleResponses =
+            new ConditionalResponseCache<>(Integer.getInteger("radioinfo.conditional.maxUrls", 1024));
+    private static final String SCHEDULE_URL = BASE_URL + "/v2/scheduledepisodes?channelid=";
+    private static final String DATE_PARAMETER = "&date=";
+    private static final ConditionalResponseCache<StreamingXMLParser.ParsedPage<ChannelNowPlaying>> rightNowResponses =
+            new ConditionalResponseCache<>(16);
+    private final PageFetcher pageFetcher = new PageFetcher();
+    private final StreamingXMLParser streamingParser = new StreamingXMLParser();
+
+    /**
+     * Gets all radio channels from the Swedish public radio (SR) API
+     * The responses are parsed while they are read, unless the system property radioinfo.parser is set to "dom"
+     * in which case they are parsed through getChannels and XMLParser.
+     * Pages that have been fetched before are requested conditionally and reused if they have not been modified
+     * if an error occurs the function returns null and the error message is set accordingly,
+     * if only some pages could be fetched the channels from those pages are returned and the error message is set
+     * @return List of channels or null if an error occured
+     */
+    public List<ChannelModel> getChannelModels(){
+        return getChannelModels(null);
+    }
+
+    /**
+     * Gets all radio channels in the same way as getChannelModels(), and tells a listener how many pages have
+     * been read each time a page has been read. With the DOM parser nothing is told
+     * @param progress given the number of pages read so far and the total number of pages, on the thread that read
+     *                 the page, or null
+     * @return List of channels or null if an error occured
+     */
+    public List<ChannelModel> getChannelModels(BiConsumer<Integer, Integer> progress){
+        if(USE_DOM_PARSER){
+            List<Document> documentList = getChannels();
+            return documentList == null ? null : new XMLParser().parseChannels(documentList);
+        }
+        AtomicInteger pagesRead = new AtomicInteger();
+        PageFetcher.PagedResponse<StreamingXMLParser.ParsedPage<ChannelModel>> response =
+                pageFetcher.fetchAll(List.of(APIHandler::channelPageUrl), streamingParser::parseChannelPage,
+                        StreamingXMLParser.ParsedPage::totalPages, channelResponses,
+                        progress == null ? null : page -> progress.accept(pagesRead.incrementAndGet(),
+                                page.totalPages()), null);
+        return flatten(collectPages(response, "kanaler"));
+    }
 
     /**
      * Gets info on all radio channels from the Swedish public radio (SR) API
-     * if an error occurs the function returns null and the error message is set accordingly
+     * if an error occurs the function returns null and the error message is set accordingly,
+     * if only some pages could be fetched the fetched pages are returned and the error message is set
      * @return List of documents with channel info in XML format or null if an error occured
      */
     public List<Document> getChannels(){
-        try{
-            //send request to API
-            URL endpoint = new URL("http://api.sr.se/api/v2/channels");
-            HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
-            connection.setRequestMethod("GET");
-            connection.connect();
-            if(connection.getResponseCode() != HttpURLConnection.HTTP_OK){
-                errorMessage += connection.getResponseCode() + " fel vid anslutning till SRs API\n";
-                return null;
-            }
-
-            //parse document
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-            Document doc = documentBuilder.parse(endpoint.openStream());
+        PageFetcher.PagedResponse<Document> response = pageFetcher.fetchAll(APIHandler::channelPageUrl, in -> {
+            Document doc = XMLParsers.parseDocument(in);
             //normalize
             doc.getDocumentElement().normalize();
+            return doc;
+        }, APIHandler::getPageCount);
+        return collectPages(response, "kanaler");
+    }
 
+    /**
+     * Gets the scheduled episodes on a given radio channel from the Swedish public radio API
+     * for the same days as getScheduledEpisodes.
+     * The responses are parsed while they are read, unless the system property radioinfo.parser is set to "dom"
+     * in which case they are parsed through getScheduledEpisodes and XMLParser.
+     * Pages that have been fetched before are requested conditionally and reused if they have not been modified
+     * if an error occurs the function returns null and the error message is set accordingly,
+     * if only some pages could be fetched the episodes from those pages are returned and the error message is set
+     * @param channelId id for the channel to get episodes from
+     * @return List of episodes or null if an error occured
+     */
+    public List<EpisodeModel> getScheduledEpisodeModels(int channelId){
+        return getScheduledEpisodeModels(channelId, null);
+    }
 
-            //get page count
-            NodeList pageCountList = doc.getElementsByTagName("totalpages");
-            Node noPagesNode = pageCountList.item(0);
-            Element noPagesElement = (Element) noPagesNode;
-            int pageCount = Integer.parseInt(noPagesElement.getTextContent());
-
-            //get document for all pages
-            ArrayList<Document> documentList = new ArrayList<>();
-            documentList.add(doc);
-            for(int i = 2 ; i <= pageCount ; i++){
-                endpoint = new URL("http://api.sr.se/api/v2/channels?page=" + i);
-                connection = (HttpURLConnection) endpoint.openConnection();
-                if(connection.getResponseCode() != HttpURLConnection.HTTP_OK){
-                    errorMessage += connection.getResponseCode() + " anslutningen till SRs API avbröts\n";
-                    return null;
-                }
-                doc = documentBuilder.parse(endpoint.openStream());
-                documentList.add(doc);
+    /**
+     * Gets the scheduled episodes on a given radio channel in the same way as getScheduledEpisodeModels(channelId),
+     * and hands the episodes of each page to a listener as soon as the page has been parsed. The pages closest to
+     * current time are requested first. With the DOM parser the listener gets all episodes at once at the end
+     * @param channelId id for the channel to get episodes from
+     * @param pageListener given the episodes of each page as it arrives, on the thread that read it, or null.
+     *                     It must not block, as that thread is needed for the other requests
+     * @return List of episodes or null if an error occured
+     */
+    public List<EpisodeModel> getScheduledEpisodeModels(int channelId, Consumer<List<EpisodeModel>> pageListener){
+        List<LocalDate> days = scheduleDays();
+        if(USE_DOM_PARSER){
+            List<Document> documentList = getScheduledEpisodes(channelId);
+            List<EpisodeModel> episodes = documentList == null ? null : new XMLParser().parseEpisodes(documentList);
+            if(episodes != null && pageListener != null){
+                pageListener.accept(episodes);
             }
-            return documentList;
-        } catch (ProtocolException e) {
-            errorMessage += "Fel har uppstått i protokollet som används för att hämta kanaler från SRs API\n";
-            return null;
-        } catch (MalformedURLException e) {
-            errorMessage += "URL som används för att hämta kanaler från SRs API är felformatterad\n";
-            return null;
-        } catch (IOException e) {
-            errorMessage += "Ett fel uppstod när tillgängliga kanaler skulle hämtas från SRs API\n";
-            return null;
-        } catch (ParserConfigurationException e) {
-            errorMessage += "Ett fel uppstod vid förberedelse att läsa dokument från SRs API\n";
-            return null;
-        } catch (SAXException e) {
-            errorMessage += "Ett fel uppstod vid läsning av dokument från SRs API\n";
-            return null;
+            return episodes;
         }
+        forgetSchedulesBefore(days.stream().min(Comparator.naturalOrder()).orElseThrow());
+        PageFetcher.PagedResponse<StreamingXMLParser.ParsedPage<EpisodeModel>> response =
+                pageFetcher.fetchAll(scheduleResources(channelId, days), streamingParser::parseEpisodePage,
+                        StreamingXMLParser.ParsedPage::totalPages, scheduleResponses,
+                        pageListener == null ? null : page -> pageListener.accept(page.items()),
+                        (resource, pageCount) -> pagesClosestToNow(days.get(resource), pageCount));
+        return flatten(collectPages(response, "avsnitt"));
     }
 
     /**
      * Gets info on scheduledEpisodes on a given radio channel from the Swedish public radio API
      * Before 6:00 (AM) UTC the list includes schedules from the previous day and after 12:00 (AM) it contains
      * episodes from the next day
-     * if an error occurs the function returns null and the error message is set accordingly
+     * if an error occurs the function returns null and the error message is set accordingly,
+     * if only some pages could be fetched the fetched pages are returned and the error message is set
      * @param channelId id for the channel to get episodes from
      * @return List of documents with info on scheduled episodes in XML format
      */
     public List<Document> getScheduledEpisodes(int channelId){
-        ArrayList<Document> documentList = new ArrayList<>();
-        //determine for which days to get schedules
-        ArrayList<String> days = new ArrayList<>();
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
-        days.add(now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-        ZonedDateTime maxLimit = now.plusHours(12);
-        ZonedDateTime minLimit = now.minusHours(6);
-        if (maxLimit.getDayOfMonth() != now.getDayOfMonth()){
-            days.add(maxLimit.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-        } else if (minLimit.getDayOfMonth() != now.getDayOfMonth()) {
-            days.add(minLimit.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-        }
-        //get documents for the determined days
-        for (String day : days){
-            try {
-                URL endpoint = new URL("http://api.sr.se/v2/scheduledepisodes?channelid=" + channelId +
-                        "&date=" + day);
-                HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
-                if(connection.getResponseCode() != HttpURLConnection.HTTP_OK){
-                    errorMessage += connection.getResponseCode() + " fel vid anslutning till SRs API\n";
-                    return null;
-                }
-
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-                Document doc = documentBuilder.parse(endpoint.openStream());
-
-                NodeList pageCountList = doc.getElementsByTagName("totalpages");
-                Node noPagesNode = pageCountList.item(0);
-                Element noPagesElement = (Element) noPagesNode;
-                int pageCount = Integer.parseInt(noPagesElement.getTextContent());
-                documentList.add(doc);
-                for(int i = 2 ; i <= pageCount ; i++){
-                    endpoint = new URL("http://api.sr.se/v2/scheduledepisodes?channelid=" + channelId +
-                            "&date=" + day + "&page=" + i);
-                    connection = (HttpURLConnection) endpoint.openConnection();
-                    connection.setRequestMethod("GET");
-                    connection.connect();
-                    if(connection.getResponseCode() != HttpURLConnection.HTTP_OK){
-                        errorMessage += connection.getResponseCode() + " anslutningen till SRs API avbröts\n";
-                        return null;
-                    }
-                    doc = documentBuilder.parse(endpoint.openStream());
-                    documentList.add(doc);
-                }
-            } catch (MalformedURLException e) {
-                errorMessage += "URL som används för att hämta avsnitt från SRs API är felformatterad\n";
-                return null;
-            } catch (ProtocolException e) {
-                errorMessage += "Fel har uppstått i protokollet som används för att hämta avsnitt från SRs API\n";
-                return null;
-            } catch (IOException e) {
-                errorMessage += "Ett fel uppstod när avsnitt skulle hämtas från SRs API\n";
-                return null;
-            } catch (ParserConfigurationException e) {
-                errorMessage += "Ett fel uppstod vid förberedelse att läsa dokument från SRs API\n";
-                return null;
-            } catch (SAXException e) {
-                errorMessage += "Ett fel uppstod vid läsning av dokument från SRs API\n";
-                return null;
-            }
-        }
-        return documentList;
+        PageFetcher.PagedResponse<Document> response = pageFetcher.fetchAll(scheduleResources(channelId, scheduleDays()),
+                XMLParsers::parseDocument,
+                APIHandler::getPageCount);
+        return collectPages(response, "avsnitt");
+    }
+
+    /**
+     * Gets the current and next episode of every channel from the Swedish public radio API in one paginated
+     * request, instead of fetching the schedule of each channel.
+     * The pages are fetched concurrently in the same way as for the other requests
+     * if an error occurs the function returns null and the error message is set accordingly,
+     * if only some pages could be fetched the channels from those pages are returned and the error message is set
+     * @return the current and next episode of each channel or null if an error occured
+     */
+    public List<ChannelNowPlaying> getNowPlaying(){
+        PageFetcher.PagedResponse<StreamingXMLParser.ParsedPage<ChannelNowPlaying>> response =
+                pageFetcher.fetchAll(List.of(APIHandler::rightNowPageUrl), streamingParser::parseRightNowPage,
+                        StreamingXMLParser.ParsedPage::totalPages, rightNowResponses);
+        return flatten(collectPages(response, "pågående sändningar"));
     }
 
     /**
-     * Gets an image icon from a given url
+     * Gets an image from a given url scaled to 100x100 pixels
+     * The image is decoded at a reduced size and scaled into a compact BufferedImage by ImageDownscaler,
+     * so the full size image is never held in memory.
+     * The times to fetch, decode and scale the image are recorded in the shared Metrics
      * @param url link to the image
-     * @return ImageIcon or null if the image could not be accessed
+     * @return the scaled image or null if the image could not be accessed
      */
-    public Image getImage(String url){
-        try{
-            return ImageIO.read(new URL(url)).
-                    getScaledInstance(100, 100, Image.SCALE_SMOOTH);
+    public BufferedImage getImage(String url){
+        Metrics metrics = Metrics.getSharedMetrics();
+        long start = System.nanoTime();
+        try(HttpTransport.Response response = transport.get(url, Map.of())){
+            metrics.histogram("image.fetch").recordSince(start);
+            if(response.getStatusCode() != HttpURLConnection.HTTP_OK){
+                metrics.counter("image.failures").increment();
+                return null; //skip the image if it could not be accessed
+            }
+            long decodeStart = System.nanoTime();
+            BufferedImage decoded = ImageDownscaler.decode(response.getBody(), 100, 100);
+            //the image is decoded while it is read, so this includes the time spent waiting for the body
+            metrics.histogram("image.decode").recordSince(decodeStart);
+            if(decoded == null){
+                metrics.counter("image.failures").increment();
+                return null; //skip the image if its format is not supported
+            }
+            long scaleStart = System.nanoTime();
+            BufferedImage result = ImageDownscaler.scale(decoded, 100, 100);
+            metrics.histogram("image.scale").recordSince(scaleStart);
+            return result;
         }catch (IOException e) {
+            metrics.counter("image.failures").increment();
             return null; //skip the image if it could not be accessed
         }
     }
 
+    /**
+     * @return the transport that all requests to the API are sent through
+     */
+    public static HttpTransport getTransport(){
+        return transport;
+    }
+
+    /**
+     * Replaces the transport that all requests to the API are sent through,
+     * the address of the API can be set with the system property radioinfo.api.baseUrl
+     * @param newTransport the transport to use
+     */
+    public static void setTransport(HttpTransport newTransport){
+        transport = newTransport;
+    }
+
     /**
      * Returns the error message from this object.
      * @return Error message
@@ -189,4 +236,170 @@ public class APIHandler {
     public String getErrorMessage(){
         return errorMessage;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if the last request returned data but some of its pages could not be fetched
+     */
+    public boolean isIncomplete(){
+        return incomplete;
+    }
+
+    /**
+     * @param page page number starting at 1
+     * @return url for a page of the channel list
+     */
+    private static String channelPageUrl(int page){
+        return page == 1 ? BASE_URL + "/api/v2/channels" : BASE_URL + "/api/v2/channels?page=" + page;
+    }
+
+    /**
+     * @param page page number starting at 1
+     * @return url for a page of the current and next episodes of all channels, with room for all channels on one page
+     */
+    private static String rightNowPageUrl(int page){
+        return BASE_URL + "/api/v2/scheduledepisodes/rightnow?size=100" + (page == 1 ? "" : "&page=" + page);
+    }
+
+    /**
+     * Determines for which days to get the schedule of a channel
+     * Before 6:00 (AM) UTC the previous day is included and after 12:00 (AM) the next day is included
+     * @return the days to get, starting with the current day
+     */
+    private static List<LocalDate> scheduleDays(){
+        ArrayList<LocalDate> days = new ArrayList<>();
+        ZonedDateTime now = ZonedDateTime.now(SCHEDULE_ZONE);
+        days.add(now.toLocalDate());
+        ZonedDateTime maxLimit = now.plusHours(12);
+        ZonedDateTime minLimit = now.minusHours(6);
+        if (maxLimit.getDayOfMonth() != now.getDayOfMonth()){
+            days.add(maxLimit.toLocalDate());
+        } else if (minLimit.getDayOfMonth() != now.getDayOfMonth()) {
+            days.add(minLimit.toLocalDate());
+        }
+        return days;
+    }
+
+    /**
+     * @param channelId id for the channel to get episodes from
+     * @param days the days to get the schedule for
+     * @return functions giving the url of a page from its page number, one for each day
+     */
+    private static List<IntFunction<String>> scheduleResources(int channelId, List<LocalDate> days){
+        List<IntFunction<String>> resources = new ArrayList<>();
+        for (LocalDate day : days){
+            String dayUrl = SCHEDULE_URL + channelId + DATE_PARAMETER + day.format(DateTimeFormatter.ISO_LOCAL_DATE);
+            resources.add(page -> page == 1 ? dayUrl : dayUrl + "&page=" + page);
+        }
+        return resources;
+    }
+
+    /**
+     * Forgets the saved schedule pages of the days before the given day, for every channel, since they are
+     * no longer fetched
+     * @param firstDay the first day that schedules are fetched for
+     */
+    private static void forgetSchedulesBefore(LocalDate firstDay){
+        String first = firstDay.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        scheduleResponses.removeIf(url -> {
+            int dateStart = url.indexOf(DATE_PARAMETER) + DATE_PARAMETER.length();
+            int dateEnd = dateStart + first.length();
+            //ISO dates sort in the same order as the days
+            return dateEnd <= url.length() && url.substring(dateStart, dateEnd).compareTo(first) < 0;
+        });
+    }
+
+    /**
+     * Orders the pages of the schedule of a day by how close they are to current time, assuming the episodes
+     * are spread evenly over the pages of the day
+     * @param day the day of the schedule, in UTC like the days given by scheduleDays (SCHEDULE_ZONE)
+     * @param pageCount number of pages in the schedule
+     * @return the page numbers from 2 to pageCount, closest to current time first
+     */
+    private static List<Integer> pagesClosestToNow(LocalDate day, int pageCount){
+        ZonedDateTime dayStart = day.atStartOfDay(SCHEDULE_ZONE);
+        double dayFraction = Duration.between(dayStart, ZonedDateTime.now(SCHEDULE_ZONE)).toMillis() /
+                (double) Duration.ofDays(1).toMillis();
+        int currentPage = 1 + (int) Math.floor(Math.min(0.999, Math.max(0, dayFraction)) * pageCount);
+        List<Integer> pages = new ArrayList<>();
+        for(int i = 2 ; i <= pageCount ; i++){
+            pages.add(i);
+        }
+        pages.sort(Comparator.comparingInt(page -> Math.abs(page - currentPage)));
+        return pages;
+    }
+
+    /**
+     * Joins the models from parsed pages into one list
+     * @param pages parsed pages or null
+     * @return the models from all pages in order, or null if pages is null
+     */
+    private static <T> List<T> flatten(List<StreamingXMLParser.ParsedPage<T>> pages){
+        if(pages == null){
+            return null;
+        }
+        ArrayList<T> results = new ArrayList<>();
+        for(StreamingXMLParser.ParsedPage<T> page : pages){
+            results.addAll(page.items());
+        }
+        return results;
+    }
+
+    /**
+     * Reads the total number of pages from the pagination element of a document
+     * @param doc first page of a paginated response
+     * @return the number of pages
+     */
+    private static int getPageCount(Document doc){
+        NodeList pageCountList = doc.getElementsByTagName("totalpages");
+        Node noPagesNode = pageCountList.item(0);
+        if(noPagesNode == null){
+            return 1;
+        }
+        Element noPagesElement = (Element) noPagesNode;
+        return Integer.parseInt(noPagesElement.getTextContent().trim());
+    }
+
+    /**
+     * Adds a message to the error message for every failed page of the response
+     * @param response the fetched pages
+     * @param content what was being fetched, used in the error messages
+     * @return the fetched pages or null if no pages could be fetched
+     */
+    private <T> List<T> collectPages(PageFetcher.PagedResponse<T> response, String content){
+        for(PageFetcher.PagedResponse.Failure failure : response.getFailures()){
+            addErrorMessage(failure, content);
+        }
+        if(response.getPages().isEmpty()){
+            return null;
+        }
+        incomplete = !response.isComplete();
+        return new ArrayList<>(response.getPages());
+    }
+
+    /**
+     * Sets the error message for a page that could not be fetched
+     * @param failure the failed page
+     * @param content what was being fetched, used in the error message
+     */
+    private void addErrorMessage(PageFetcher.PagedResponse.Failure failure, String content){
+        Exception e = failure.cause();
+        if(e instanceof HttpStatusException statusException){
+            errorMessage += statusException.getStatusCode() + (failure.page() == 1 ?
+                    " fel vid anslutning till SRs API\n" : " anslutningen till SRs API avbröts\n");
+        } else if (e instanceof ProtocolException) {
+            errorMessage += "Fel har uppstått i protokollet som används för att hämta " + content + " från SRs API\n";
+        } else if (e instanceof MalformedURLException) {
+            errorMessage += "URL som används för att hämta " + content + " från SRs API är felformatterad\n";
+        } else if (e instanceof ParserConfigurationException) {
+            errorMessage += "Ett fel uppstod vid förberedelse att läsa dokument från SRs API\n";
+        } else if (e instanceof SAXException || e instanceof XMLStreamException) {
+            errorMessage += "Ett fel uppstod vid läsning av dokument från SRs API\n";
+        } else if (e instanceof SocketTimeoutException) {
+            errorMessage += "SRs API svarade inte i tid när " + content + " skulle hämtas\n";
+        } else if (e instanceof InterruptedException) {
+            errorMessage += "Hämtningen av " + content + " från SRs API avbröts\n";
+        } else {
+            errorMessage += "Ett fel uppstod när " + content + " skulle hämtas från SRs API\n";
+        }
+    }
+}
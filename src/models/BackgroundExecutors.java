@@ -0,0 +1,49 @@
+package models;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors used for background work such as API requests and image downloads
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public final class BackgroundExecutors {
+
+    private BackgroundExecutors(){}
+
+    /**
+     * Creates an executor with virtual threads if the running JDK supports them, else a pool of daemon threads.
+     * A virtual thread executor does not limit the number of running tasks, callers that need a limit
+     * have to enforce it themselves.
+     * @param threadName name of the threads in the pool
+     * @param poolSize number of threads in the pool if virtual threads are not available
+     * @return executor for background tasks
+     */
+    public static ExecutorService create(String threadName, int poolSize){
+        return create(threadName, poolSize, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * Creates an executor in the same way as create(threadName, poolSize), but with the given priority
+     * for the pooled threads. Virtual threads always have normal priority.
+     * @param threadName name of the threads in the pool
+     * @param poolSize number of threads in the pool if virtual threads are not available
+     * @param priority priority of the threads in the pool
+     * @return executor for background tasks
+     */
+    public static ExecutorService create(String threadName, int poolSize, int priority){
+        try {
+            Method virtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, poolSize), r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            });
+        }
+    }
+}
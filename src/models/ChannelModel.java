@@ -3,7 +3,7 @@ package models;
 /**
  * Representation of a radio channel from the Swedish public radio
  * @author Samuel Sandlund
- * @version 1.0
+ * @version 1.1 the menu group of a channel is decided here
  * @since 2023-01-08
  */
 public class ChannelModel {
@@ -28,6 +28,19 @@ public class ChannelModel {
     public String getName(){
         return name;
     }
+
+    /**
+     * Channels are grouped in the menu by the start of their name
+     * @return P2, P3, P4 or SR for a channel shown in that submenu, or an empty string for a channel
+     * shown directly in the channel menu
+     */
+    public String getMenuGroup(){
+        String start = name.length() < 2 ? "" : name.substring(0, 2);
+        return switch (start) {
+            case "P2", "P3", "P4", "SR" -> start;
+            default -> "";
+        };
+    }
 }
 
 
@@ -0,0 +1,11 @@
+package models;
+
+/**
+ * The episode that is broadcast on a channel right now and the episode after it
+ * @param channel the channel
+ * @param current the episode on air, or null if nothing is known to be on air
+ * @param next the episode after the current one, or null if it is not known
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public record ChannelNowPlaying(ChannelModel channel, EpisodeModel current, EpisodeModel next) {}
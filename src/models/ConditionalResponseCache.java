@@ -0,0 +1,88 @@
+package models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Remembers the validators (ETag and Last-Modified) that the API sent with a response, together with
+ * what the response was parsed into. This lets a request for the same url be sent as a conditional request,
+ * and if the API answers 304 Not Modified the parsed result is reused without reading or parsing anything.
+ * Holds at most a fixed number of urls, the least recently used urls are forgotten first.
+ * @param <T> the type that responses are parsed into
+ * @version 1.1 urls that are no longer used can be forgotten
+ * @since 2026-10-18
+ */
+public class ConditionalResponseCache<T> {
+    private final LinkedHashMap<String, Entry<T>> entries;
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    /**
+     * A parsed response and the validators it was sent with
+     * @param etag value of the ETag header or null
+     * @param lastModified value of the Last-Modified header or null
+     * @param value what the response was parsed into
+     * @param <T> the type that the response was parsed into
+     */
+    public record Entry<T>(String etag, String lastModified, T value) {}
+
+    /**
+     * Creates an empty cache
+     * @param maxEntries the maximum number of urls to remember
+     */
+    public ConditionalResponseCache(int maxEntries){
+        entries = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param url url of a request
+     * @return the saved response for the url or null if there is none
+     */
+    public synchronized Entry<T> get(String url){
+        return entries.get(url);
+    }
+
+    /**
+     * Saves a parsed response if it was sent with at least one validator, else forgets the url
+     * @param url url of the request
+     * @param etag value of the ETag header or null
+     * @param lastModified value of the Last-Modified header or null
+     * @param value what the response was parsed into
+     */
+    public synchronized void put(String url, String etag, String lastModified, T value){
+        if(etag == null && lastModified == null){
+            entries.remove(url);
+        }
+        else {
+            entries.put(url, new Entry<>(etag, lastModified, value));
+        }
+    }
+
+    /**
+     * Forgets the urls that will not be requested again
+     * @param unused true for a url that is no longer used
+     */
+    public synchronized void removeIf(Predicate<String> unused){
+        entries.keySet().removeIf(unused);
+    }
+
+    /**
+     * Registers that the API answered a request with 304 Not Modified
+     */
+    void countNotModified(){
+        notModifiedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of requests that the API answered with 304 Not Modified
+     */
+    public long getNotModifiedCount(){
+        return notModifiedCount.get();
+    }
+}
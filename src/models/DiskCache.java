@@ -0,0 +1,430 @@
+package models;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores channels, schedules and cover images on disk so that the application can show data
+ * from the previous session directly on startup, even if the SR API can not be reached.
+ * Channels, schedules and channel visit counts are written in a compact binary format, images are written as PNG files.
+ * The directory is set by the system property radioinfo.cacheDir (default ~/.radioinfo/cache).
+ * The cache is best effort, if something can not be read or written it is treated as not being cached,
+ * and a file that can not be read is deleted. Old schedules and images that have not been used for a long time
+ * are removed by evictOldFiles, which also keeps the images below radioinfo.cache.maxImageMegabytes (20 MB).
+ * @version 1.1 corrupt files are deleted and old files are evicted
+ * @since 2026-10-18
+ */
+public class DiskCache {
+    private static final int CHANNELS_MAGIC = 0x52494301; //"RIC" + format version
+    private static final int SCHEDULE_MAGIC = 0x52494501; //"RIE" + format version
+    private static final int VISITS_MAGIC = 0x52495601; //"RIV" + format version
+    private static final int MAX_STRING_BYTES = 1 << 20;
+    private static final int MAX_COUNT = 1 << 20;
+    //a schedule covers at most two days, after that nothing in it is shown
+    private static final Duration MAX_SCHEDULE_AGE = Duration.ofDays(2);
+    private static final Duration MAX_IMAGE_AGE = Duration.ofDays(30);
+    private static final long MAX_IMAGE_BYTES =
+            Integer.getInteger("radioinfo.cache.maxImageMegabytes", 20) * 1024L * 1024L;
+    private static final DiskCache sharedCache = new DiskCache(Paths.get(System.getProperty("radioinfo.cacheDir",
+            Paths.get(System.getProperty("user.home"), ".radioinfo", "cache").toString())));
+    private final Path directory;
+
+    /**
+     * Creates a cache in the given directory, the directory is created when something is first saved
+     * @param directory directory to store the cached files in
+     */
+    public DiskCache(Path directory){
+        this.directory = directory;
+    }
+
+    /**
+     * @return the disk cache shared by the whole application
+     */
+    public static DiskCache getSharedCache(){
+        return sharedCache;
+    }
+
+    /**
+     * @return the directory where the cached files are stored
+     */
+    public Path getDirectory(){
+        return directory;
+    }
+
+    /**
+     * Saves the list of available channels
+     * @param channels channels to save
+     */
+    public void saveChannels(List<ChannelModel> channels){
+        write(directory.resolve("channels.bin"), out -> {
+            out.writeInt(CHANNELS_MAGIC);
+            out.writeInt(channels.size());
+            for(ChannelModel c : channels){
+                out.writeInt(c.getId());
+                writeString(out, c.getName());
+            }
+        });
+    }
+
+    /**
+     * Loads the list of channels saved by saveChannels
+     * @return the saved channels or null if no channels have been saved
+     */
+    public List<ChannelModel> loadChannels(){
+        return read(directory.resolve("channels.bin"), in -> {
+            if(in.readInt() != CHANNELS_MAGIC){
+                return null;
+            }
+            int count = readCount(in);
+            List<ChannelModel> channels = new ArrayList<>(count);
+            for(int i = 0 ; i < count ; i++){
+                channels.add(new ChannelModel(in.readInt(), readString(in)));
+            }
+            return channels;
+        });
+    }
+
+    /**
+     * Saves the schedule of a channel together with the time it was fetched from the API
+     * @param channelId id of the channel
+     * @param episodes the channels episodes
+     * @param fetchTime time at which the episodes were fetched
+     */
+    public void saveEpisodes(int channelId, List<EpisodeModel> episodes, Instant fetchTime){
+        write(directory.resolve("schedule-" + channelId + ".bin"), out -> {
+            out.writeInt(SCHEDULE_MAGIC);
+            out.writeInt(channelId);
+            out.writeLong(fetchTime.toEpochMilli());
+            out.writeInt(episodes.size());
+            for(EpisodeModel e : episodes){
+                out.writeInt(e.getId());
+                writeString(out, e.getTitle());
+                writeString(out, e.getSubTitle());
+                writeString(out, e.getDescription());
+                writeString(out, e.getImage() == null ? "" : e.getImage().getUrl());
+                writeString(out, e.getProgramName());
+                writeInstant(out, e.getStartTime());
+                writeInstant(out, e.getEndTime());
+            }
+        });
+    }
+
+    /**
+     * Loads all schedules saved by saveEpisodes
+     * @return map from channel id to the saved schedule for that channel
+     */
+    public Map<Integer, CachedSchedule> loadAllEpisodes(){
+        Map<Integer, CachedSchedule> schedules = new HashMap<>();
+        if(!Files.isDirectory(directory)){
+            return schedules;
+        }
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "schedule-*.bin")){
+            for(Path file : files){
+                CachedSchedule schedule = read(file, DiskCache::readSchedule);
+                if(schedule != null){
+                    schedules.put(schedule.channelId(), schedule);
+                }
+            }
+        } catch (IOException e) {
+            return schedules;
+        }
+        return schedules;
+    }
+
+    /**
+     * Saves how many times each channel has been opened
+     * @param visitCounts map from channel id to the number of times the channel has been opened
+     */
+    public void saveVisitCounts(Map<Integer, Integer> visitCounts){
+        write(directory.resolve("visits.bin"), out -> {
+            out.writeInt(VISITS_MAGIC);
+            out.writeInt(visitCounts.size());
+            for(Map.Entry<Integer, Integer> entry : visitCounts.entrySet()){
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Loads the visit counts saved by saveVisitCounts
+     * @return map from channel id to the number of times the channel has been opened, empty if nothing is saved
+     */
+    public Map<Integer, Integer> loadVisitCounts(){
+        Map<Integer, Integer> visitCounts = read(directory.resolve("visits.bin"), in -> {
+            if(in.readInt() != VISITS_MAGIC){
+                return null;
+            }
+            int count = readCount(in);
+            Map<Integer, Integer> counts = new HashMap<>();
+            for(int i = 0 ; i < count ; i++){
+                counts.put(in.readInt(), in.readInt());
+            }
+            return counts;
+        });
+        return visitCounts == null ? new HashMap<>() : visitCounts;
+    }
+
+    /**
+     * Saves a scaled cover image
+     * @param url link the image was downloaded from
+     * @param image the scaled image
+     */
+    public void saveImage(String url, BufferedImage image){
+        Path file = imageFile(url);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "image", ".tmp");
+            try {
+                ImageIO.write(image, "png", temp.toFile());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            //the image is downloaded again next time
+        }
+    }
+
+    /**
+     * Loads a cover image saved by saveImage
+     * @param url link the image was downloaded from
+     * @return the saved image or null if it has not been saved
+     */
+    public BufferedImage loadImage(String url){
+        Path file = imageFile(url);
+        if(!Files.isRegularFile(file)){
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if(image == null){
+                Files.deleteIfExists(file);
+                return null;
+            }
+            //images that are used are kept when the images are evicted, the time is only moved now and then
+            Instant now = Instant.now();
+            if(Files.getLastModifiedTime(file).toInstant().isBefore(now.minus(Duration.ofDays(1)))){
+                Files.setLastModifiedTime(file, FileTime.from(now));
+            }
+            return image;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes schedules that are too old to show anything and images that have not been used for 30 days,
+     * then deletes the images that were used longest ago until the images fit in their limit
+     * @param now current time
+     */
+    public void evictOldFiles(Instant now){
+        if(!Files.isDirectory(directory)){
+            return;
+        }
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "schedule-*.bin")){
+            for(Path file : files){
+                if(Files.getLastModifiedTime(file).toInstant().isBefore(now.minus(MAX_SCHEDULE_AGE))){
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            //tried again next time
+        }
+        Path imageDirectory = directory.resolve("images");
+        if(!Files.isDirectory(imageDirectory)){
+            return;
+        }
+        List<Path> images = new ArrayList<>();
+        Map<Path, Instant> usedTimes = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(imageDirectory, "*.png")){
+            for(Path file : files){
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                images.add(file);
+                usedTimes.put(file, attributes.lastModifiedTime().toInstant());
+                sizes.put(file, attributes.size());
+            }
+        } catch (IOException e) {
+            return;
+        }
+        images.sort(Comparator.comparing(usedTimes::get));
+        long totalBytes = 0;
+        for(Path image : images){
+            totalBytes += sizes.get(image);
+        }
+        for(Path image : images){
+            if(totalBytes <= MAX_IMAGE_BYTES && !usedTimes.get(image).isBefore(now.minus(MAX_IMAGE_AGE))){
+                break;
+            }
+            deleteQuietly(image);
+            totalBytes -= sizes.get(image);
+        }
+    }
+
+    /**
+     * A schedule read from disk
+     * @param channelId id of the channel
+     * @param fetchTime time at which the episodes were fetched from the API
+     * @param episodes the channels episodes
+     */
+    public record CachedSchedule(int channelId, Instant fetchTime, List<EpisodeModel> episodes) {}
+
+    private static CachedSchedule readSchedule(DataInputStream in) throws IOException {
+        if(in.readInt() != SCHEDULE_MAGIC){
+            return null;
+        }
+        int channelId = in.readInt();
+        Instant fetchTime = Instant.ofEpochMilli(in.readLong());
+        int count = readCount(in);
+        List<EpisodeModel> episodes = new ArrayList<>(count);
+        for(int i = 0 ; i < count ; i++){
+            EpisodeModelBuilder builder = new EpisodeModel.Builder();
+            builder.setId(in.readInt());
+            builder.setTitle(readString(in));
+            builder.setSubtitle(readString(in));
+            builder.setDescription(readString(in));
+            builder.setImageUrl(readString(in));
+            builder.setProgramName(readString(in));
+            builder.setStartTime(readInstant(in));
+            builder.setEndTime(readInstant(in));
+            episodes.add(builder.build());
+        }
+        return new CachedSchedule(channelId, fetchTime, episodes);
+    }
+
+    private Path imageFile(String url){
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve("images").resolve(HexFormat.of().formatHex(hash) + ".png");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //every JDK has SHA-1
+        }
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Writes a file by first writing to a temporary file and then moving it into place,
+     * so that a crash while writing never leaves a half written file behind
+     */
+    private void write(Path file, Writer writer){
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try(OutputStream fileOut = Files.newOutputStream(temp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))){
+                    writer.write(out);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            //the data is fetched from the API again next time
+        }
+    }
+
+    /**
+     * Reads a file, a file that can not be read, for example because it is corrupt or was cut short,
+     * is deleted and treated as not cached
+     */
+    private <T> T read(Path file, Reader<T> reader){
+        if(!Files.isRegularFile(file)){
+            return null;
+        }
+        try(InputStream fileIn = Files.newInputStream(file);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))){
+            return reader.read(in);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path file){
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            //tried again next time the file is read
+        }
+    }
+
+    /**
+     * Reads the number of items that follow, checked so that a corrupt file can not ask for a huge list
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if(count < 0 || count > MAX_COUNT){
+            throw new IOException("Felaktigt antal i cachefil");
+        }
+        return count;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its bytes, unlike writeUTF this has no 64kB limit
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0 || length > MAX_STRING_BYTES){
+            throw new IOException("Felaktig längd på text i cachefil");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant == null ? Long.MIN_VALUE : instant.getEpochSecond());
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        if(seconds == Long.MIN_VALUE){
+            return null;
+        }
+        if(seconds < Instant.MIN.getEpochSecond() || seconds > Instant.MAX.getEpochSecond()){
+            throw new IOException("Felaktig tid i cachefil");
+        }
+        return Instant.ofEpochSecond(seconds);
+    }
+}
@@ -0,0 +1,59 @@
+package models;
+
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A handle to the cover image of an episode.
+ * The image is not downloaded until it is first asked for. The handle only holds the url of the image,
+ * which is the key under which the image is kept in the ImageCache and the DiskCache, so episodes with the same
+ * image share it and creating a handle costs nothing.
+ * @version 1.1 the handle is a key to the image caches instead of holding the image itself
+ * @since 2026-10-18
+ */
+public class EpisodeImage {
+    private final String url;
+
+    public EpisodeImage(String url){
+        this.url = url;
+    }
+
+    /**
+     * @return the link to the image
+     */
+    public String getUrl(){
+        return url;
+    }
+
+    /**
+     * Starts loading the image in the background if it is not in the cache and not already being loaded
+     * @return future that completes with the image, or with null if the image could not be accessed
+     */
+    public CompletableFuture<Image> load(){
+        return ImageLoader.getSharedLoader().load(url);
+    }
+
+    /**
+     * Calls the given action with the image once it has been loaded, loading it if necessary.
+     * The action is called on a background thread, or directly if the image is already loaded.
+     * @param action action that receives the image, or null if the image could not be accessed
+     */
+    public void whenLoaded(Consumer<Image> action){
+        load().thenAccept(action);
+    }
+
+    /**
+     * @return true if the image is loaded and in the cache
+     */
+    public boolean isLoaded(){
+        return getImageNow() != null;
+    }
+
+    /**
+     * @return the image if it is loaded and in the cache, else null
+     */
+    public Image getImageNow(){
+        return ImageCache.getSharedCache().get(url);
+    }
+}
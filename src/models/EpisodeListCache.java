@@ -1,25 +1,318 @@
 package models;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A class to store information about the current episodes on channels that
  * the program has already gotten from the API.
  * Used to reduce the amount of API-calls required.
+ * Loads of a channel are shared: while a channel is being loaded, other requests for the same channel
+ * wait for that load instead of starting their own.
+ * Each list is kept as an EpisodeTimeline, so that what is on air can be found without going through the list,
+ * and episodes that have passed are dropped with evictOldEpisodes instead of trimming copies of the lists.
+ * Hits, misses, shared loads and load times are recorded in the shared Metrics.
  * @author Samuel Sandlund
- * @version 2.0 class now extends thread-safe ConcurrentHashMap instead of regular HashMap
+ * @version 3.4 tells if other callers wait for a running load
  * @since 2023-02-07
  */
-public class EpisodeListCache extends ConcurrentHashMap<Integer, List<EpisodeModel>> {
+public class EpisodeListCache {
+    //schedules are shown for episodes starting up to this many hours after current time
+    private static final Duration SCHEDULE_LOOKAHEAD = Duration.ofHours(12);
+    //episodes starting more than this many hours before current time are no longer shown
+    private static final Duration SCHEDULE_LOOKBEHIND = Duration.ofHours(6);
+    //a list is never considered out of date sooner than this after it was fetched
+    private static final Duration MIN_AGE = Duration.ofMinutes(15);
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, CompletableFuture<LoadResult>> loading = new ConcurrentHashMap<>();
+    //number of callers waiting for the running load of each channel, not counting the caller running it
+    private final ConcurrentHashMap<Integer, Integer> waiting = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder hitCount = Metrics.getSharedMetrics().counter("episodeCache.hits");
+    private final LongAdder missCount = Metrics.getSharedMetrics().counter("episodeCache.misses");
+    private final LongAdder sharedLoadCount = Metrics.getSharedMetrics().counter("episodeCache.sharedLoads");
+    private final LatencyHistogram loadTimes = Metrics.getSharedMetrics().histogram("episodeCache.load");
+
+    /**
+     * A saved list of episodes together with the time it was fetched and the time it goes out of date
+     * @param timeline the episodes sorted by start time
+     * @param fetchTime the time at which the episodes were fetched
+     * @param expiryTime the time at which the list goes out of date
+     */
+    public record Entry(EpisodeTimeline timeline, Instant fetchTime, Instant expiryTime) {
+        /**
+         * @return the episodes sorted by start time
+         */
+        public List<EpisodeModel> episodes(){
+            return timeline.getEpisodes();
+        }
+    }
+
+    /**
+     * Told when the saved list of a channel has been replaced or has had episodes dropped
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that changed the list
+         * @param channelId id of the channel
+         * @param episodes the list that is now saved for the channel
+         */
+        void listChanged(int channelId, List<EpisodeModel> episodes);
+    }
+
+    /**
+     * Loads the list of episodes for a channel, used by load and getOrLoad
+     */
+    public interface Loader {
+        /**
+         * @param channelId id of the channel to load
+         * @return the outcome of the load
+         */
+        LoadResult load(int channelId);
+    }
+
+    /**
+     * The outcome of loading the list of episodes for a channel
+     * @param episodes the loaded list, or null if nothing could be loaded
+     * @param fetchTime the time at which the list was fetched
+     * @param incomplete true if only some of the list could be loaded
+     * @param cancelled true if the load was interrupted before it finished
+     * @param errorMessage description of what went wrong, empty if nothing went wrong
+     */
+    public record LoadResult(List<EpisodeModel> episodes, Instant fetchTime, boolean incomplete, boolean cancelled,
+                             String errorMessage) {
+        /**
+         * @param episodes the loaded list
+         * @param fetchTime the time at which the list was fetched
+         * @return a result for a list that was loaded completely
+         */
+        public static LoadResult success(List<EpisodeModel> episodes, Instant fetchTime){
+            return new LoadResult(episodes, fetchTime, false, false, "");
+        }
+
+        /**
+         * @param errorMessage description of what went wrong
+         * @return a result for a load that failed
+         */
+        public static LoadResult failure(String errorMessage){
+            return new LoadResult(null, null, false, false, errorMessage);
+        }
+
+        /**
+         * @return a result for a load that was interrupted
+         */
+        public static LoadResult cancelledLoad(){
+            return new LoadResult(null, null, false, true, "Hämtningen avbröts\n");
+        }
+
+        /**
+         * @return true if a list was loaded, completely or partly
+         */
+        public boolean isSuccess(){
+            return episodes != null;
+        }
+    }
 
     /**
      * Saves a new channel and its list of episodes
      * @param channelModel the channel on which the episodes are broadcast (the id of this channel is used as key)
-     * @param episodeList the list of episodes for the channelModel (a TableModel for this list is saved as value)
+     * @param episodeList the list of episodes for the channelModel
      */
     public void saveEpisodeList(ChannelModel channelModel, List<EpisodeModel> episodeList){
-        this.put(channelModel.getId(), episodeList);
+        saveEpisodeList(channelModel.getId(), episodeList, Instant.now());
+    }
+
+    /**
+     * Saves the list of episodes for a channel together with the time it was fetched from the API,
+     * replacing any list saved for the channel
+     * @param channelId id of the channel on which the episodes are broadcast
+     * @param episodeList the list of episodes for the channel
+     * @param fetchTime the time at which the episodes were fetched
+     */
+    public void saveEpisodeList(int channelId, List<EpisodeModel> episodeList, Instant fetchTime){
+        EpisodeTimeline timeline = EpisodeTimeline.of(episodeList);
+        entries.put(channelId, new Entry(timeline, fetchTime, computeExpiryTime(timeline, fetchTime)));
+        notifyListeners(channelId, timeline.getEpisodes());
+    }
+
+    /**
+     * Adds a listener that is told whenever a saved list changes
+     * @param listener the listener
+     */
+    public void addListener(Listener listener){
+        listeners.add(listener);
+    }
+
+    /**
+     * Drops the episodes that start more than 6 hours before the given time from all saved lists,
+     * the episodes are no longer shown and the lists do not have to be trimmed again
+     * @param now current time
+     */
+    public void evictOldEpisodes(Instant now){
+        Instant cutoff = now.minus(SCHEDULE_LOOKBEHIND);
+        Map<Integer, List<EpisodeModel>> changed = new HashMap<>();
+        entries.replaceAll((channelId, entry) -> {
+            EpisodeTimeline timeline = entry.timeline().evictStartingBefore(cutoff);
+            if(timeline == entry.timeline()){
+                return entry;
+            }
+            changed.put(channelId, timeline.getEpisodes());
+            return new Entry(timeline, entry.fetchTime(), entry.expiryTime());
+        });
+        changed.forEach(this::notifyListeners);
+    }
+
+    /**
+     * Loads the list of episodes for a channel and saves it, or waits for a load of the channel that is
+     * already running and uses its result. Runs the loader on the calling thread if no load is running.
+     * A complete list replaces the saved list, an incomplete list is only saved if no list is saved for the channel.
+     * If a load that is waited for is cancelled, the channel is loaded again.
+     * @param channelId id of the channel to load
+     * @param loader used to load the list if no load is running
+     * @return the outcome of the load
+     */
+    public LoadResult load(int channelId, Loader loader){
+        while(true){
+            CompletableFuture<LoadResult> ownLoad = new CompletableFuture<>();
+            CompletableFuture<LoadResult> runningLoad = loading.putIfAbsent(channelId, ownLoad);
+            if(runningLoad == null){
+                return runLoad(channelId, loader, ownLoad);
+            }
+            sharedLoadCount.increment();
+            LoadResult result;
+            waiting.merge(channelId, 1, Integer::sum);
+            try {
+                result = runningLoad.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return LoadResult.cancelledLoad();
+            } catch (ExecutionException e) {
+                return LoadResult.failure("Ett oväntat fel uppstod\n");
+            } finally {
+                waiting.computeIfPresent(channelId, (id, count) -> count == 1 ? null : count - 1);
+            }
+            if(!result.cancelled() || Thread.currentThread().isInterrupted()){
+                return result;
+            }
+            //the load that was waited for was cancelled, but this caller still wants the list
+        }
+    }
+
+    /**
+     * Checks if anyone but the caller running the load of a channel waits for it, so that cancelling the load
+     * would make them load the channel again
+     * @param channelId id of the channel
+     * @return true if a load of the channel is running and other callers wait for its result
+     */
+    public boolean hasWaitingLoads(int channelId){
+        return waiting.containsKey(channelId);
+    }
+
+    /**
+     * Gets the saved list of episodes for a channel, or loads it in the same way as load if no list is saved
+     * @param channelId id of the channel
+     * @param loader used to load the list if no list is saved and no load is running
+     * @return the outcome, with the saved list if there was one
+     */
+    public LoadResult getOrLoad(int channelId, Loader loader){
+        Entry entry = entries.get(channelId);
+        if(entry != null){
+            hitCount.increment();
+            return LoadResult.success(entry.episodes(), entry.fetchTime());
+        }
+        missCount.increment();
+        return load(channelId, loader);
+    }
+
+    /**
+     * Gets the saved entry for a channel
+     * @param channelId id of the channel
+     * @return the saved list with its fetch and expiry times, or null if no list is saved for the channel
+     */
+    public Entry getEntry(int channelId){
+        return entries.get(channelId);
+    }
+
+    /**
+     * @return ids of all channels that have a saved list
+     */
+    public Set<Integer> getChannelIds(){
+        return entries.keySet();
+    }
+
+    /**
+     * Gets the time at which the list of episodes for a channel was fetched from the API
+     * @param channelId id of the channel
+     * @return the time the list was fetched or null if there is no list saved for the channel
+     */
+    public Instant getFetchTime(int channelId){
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.fetchTime();
+    }
+
+    /**
+     * Gets the time at which the saved list for a channel goes out of date, that is when episodes that are not
+     * in the list start to fall within the 12 hours ahead of current time that schedules are shown for
+     * @param channelId id of the channel
+     * @return the time the list goes out of date or null if there is no list saved for the channel
+     */
+    public Instant getExpiryTime(int channelId){
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.expiryTime();
+    }
+
+    /**
+     * Checks if the list saved for a channel is still up to date
+     * @param channelId id of the channel
+     * @param now current time
+     * @return true if there is a saved list for the channel that has not gone out of date
+     */
+    public boolean isUpToDate(int channelId, Instant now){
+        Entry entry = entries.get(channelId);
+        return entry != null && now.isBefore(entry.expiryTime());
+    }
+
+    /**
+     * Gets the end time of the episode that is broadcast on a channel at the given time
+     * @param channelId id of the channel
+     * @param now the time to check
+     * @return the end time of the episode broadcast at the given time, or null if there is no such saved episode
+     */
+    public Instant getCurrentEpisodeEnd(int channelId, Instant now){
+        EpisodeModel current = getNowPlaying(channelId, now);
+        return current == null ? null : current.getEndTime();
+    }
+
+    /**
+     * Gets the episode that is broadcast on a channel at the given time
+     * @param channelId id of the channel
+     * @param now the time to check
+     * @return the episode broadcast at the given time, or null if there is no such saved episode
+     */
+    public EpisodeModel getNowPlaying(int channelId, Instant now){
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.timeline().getNowPlaying(now);
+    }
+
+    /**
+     * Gets the saved episodes that start after the given time on a channel
+     * @param channelId id of the channel
+     * @param now the time to check
+     * @param count the largest number of episodes to get
+     * @return up to count episodes sorted by start time, empty if no list is saved for the channel
+     */
+    public List<EpisodeModel> getNext(int channelId, Instant now, int count){
+        Entry entry = entries.get(channelId);
+        return entry == null ? List.of() : entry.timeline().getNext(now, count);
     }
 
     /**
@@ -28,15 +321,61 @@ public class EpisodeListCache extends ConcurrentHashMap<Integer, List<EpisodeMod
      * @return true if there is a value for the given channelId, else false
      */
     public boolean hasSavedEpisodeList(int channelId){
-        return this.containsKey(channelId);
+        return entries.containsKey(channelId);
     }
 
     /**
-     * Gets the tableModel saved for a given channelId
-     * @param channelId id of the channel to get RadioChannelTableModel for
-     * @return TableModel for the episodes on the channel with the given id.
+     * Gets the list of episodes saved for a given channelId
+     * @param channelId id of the channel to get the episodes for
+     * @return the episodes on the channel with the given id, or null if no list is saved
      */
     public List<EpisodeModel> getEpisodeList(int channelId){
-        return this.get(channelId);
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.episodes();
+    }
+
+    private void notifyListeners(int channelId, List<EpisodeModel> episodes){
+        for(Listener listener : listeners){
+            listener.listChanged(channelId, episodes);
+        }
+    }
+
+    /**
+     * Runs a load that this caller is responsible for and shares its result with everyone waiting for it
+     */
+    private LoadResult runLoad(int channelId, Loader loader, CompletableFuture<LoadResult> ownLoad){
+        LoadResult result = LoadResult.failure("Ett oväntat fel uppstod\n");
+        long start = System.nanoTime();
+        try {
+            result = loader.load(channelId);
+            loadTimes.recordSince(start);
+            if(result.isSuccess() && (!result.incomplete() || !entries.containsKey(channelId))){
+                saveEpisodeList(channelId, result.episodes(), result.fetchTime());
+            }
+        } catch (RuntimeException e) {
+            result = LoadResult.failure("Ett oväntat fel uppstod\n");
+        } finally {
+            //the result is shared even if the loader failed, so that no one waits for it forever
+            loading.remove(channelId, ownLoad);
+            ownLoad.complete(result);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates when a list goes out of date. Episodes follow each other, so the first episode that is
+     * missing from the list starts when the last episode in the list ends.
+     * @param timeline the episodes
+     * @param fetchTime the time at which the episodes were fetched
+     * @return the time at which the next episode after the list starts to be shown
+     */
+    private static Instant computeExpiryTime(EpisodeTimeline timeline, Instant fetchTime){
+        Instant lastEnd = timeline.getLastEnd();
+        Instant earliest = fetchTime.plus(MIN_AGE);
+        if(lastEnd == null){
+            return earliest;
+        }
+        Instant expiry = lastEnd.minus(SCHEDULE_LOOKAHEAD);
+        return expiry.isBefore(earliest) ? earliest : expiry;
     }
 }
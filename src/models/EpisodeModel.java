@@ -1,52 +1,51 @@
 package models;
 
-import java.awt.*;
 import java.time.Instant;
 
 /**
  * Representation of a radio program from the Swedish public radio
+ * To keep the schedules of all channels small the texts that recur are shared through the StringPool, descriptions
+ * are nearly all unique and are kept as they are. The times are kept as epoch seconds and the cover image is only
+ * referred to by its url, which is the key of the image caches.
  * @author Samuel Sandlund
- * @version 1.1 image type changed from swing ImageIcon to abstract Image
+ * @version 1.4 descriptions are not shared
  * @since 2023-02-07
  */
 public class EpisodeModel {
+    //value of startSeconds and endSeconds when the time is not known
+    private static final long NO_TIME = Long.MIN_VALUE;
     private final int id;
     private final String title;
     private final String subTitle;
     private final String description;
-    private final Image image;
+    private final String imageUrl;
     private final String programName;
-    private final Instant startTime;
-    private final Instant endTime;
+    private final long startSeconds;
+    private final long endSeconds;
 
 
     private EpisodeModel(Builder builder){
-        this.id = builder.id;
-        this.title = builder.title;
-        this.subTitle = builder.subTitle;
-        this.description = builder.description;
-        this.image = builder.image;
-        this.startTime = builder.startTime;
-        this.endTime = builder.endTime;
-        this.programName = builder.programName;
+        this(builder.id, builder.title, builder.subTitle, builder.description, builder.imageUrl, builder.programName,
+                builder.startTime, builder.endTime);
     }
 
     public EpisodeModel(int id,
                         String title,
                         String subTitle,
                         String description,
-                        Image image,
+                        String imageUrl,
                         String programName,
                         Instant startTime,
                         Instant endTime){
+        StringPool pool = StringPool.getSharedPool();
         this.id = id;
-        this.title = title;
-        this.subTitle = subTitle;
+        this.title = pool.share(title);
+        this.subTitle = pool.share(subTitle);
         this.description = description;
-        this.image = image;
-        this.startTime = startTime;
-        this.endTime = endTime;
-        this.programName = programName;
+        this.imageUrl = imageUrl == null || imageUrl.isEmpty() ? null : pool.share(imageUrl);
+        this.startSeconds = startTime == null ? NO_TIME : startTime.getEpochSecond();
+        this.endSeconds = endTime == null ? NO_TIME : endTime.getEpochSecond();
+        this.programName = pool.share(programName);
     }
 
     /**
@@ -78,22 +77,47 @@ public class EpisodeModel {
     }
 
     /**
-     * @return the cover image for this episode
+     * @return handle to the cover image for this episode, or null if the episode has no image
      */
-    public Image getImage(){return image;}
+    public EpisodeImage getImage(){
+        return imageUrl == null ? null : new EpisodeImage(imageUrl);
+    }
 
     /**
-     * @return the time (UTC) at which the broadcast starts
+     * @return link to the cover image for this episode, or null if the episode has no image
+     */
+    public String getImageUrl(){
+        return imageUrl;
+    }
+
+    /**
+     * @return the time (UTC) at which the broadcast starts, or null if it is not known
      */
     public Instant getStartTime(){
-        return startTime;
+        return startSeconds == NO_TIME ? null : Instant.ofEpochSecond(startSeconds);
     }
 
     /**
-     * @return the time (UTC) at which the broadcast ends
+     * @return the time (UTC) at which the broadcast ends, or null if it is not known
      */
     public Instant getEndTime(){
-        return endTime;
+        return endSeconds == NO_TIME ? null : Instant.ofEpochSecond(endSeconds);
+    }
+
+    /**
+     * @return the time (UTC) at which the broadcast starts in seconds since the epoch,
+     *         or Long.MIN_VALUE if it is not known
+     */
+    public long getStartEpochSecond(){
+        return startSeconds;
+    }
+
+    /**
+     * @return the time (UTC) at which the broadcast ends in seconds since the epoch,
+     *         or Long.MIN_VALUE if it is not known
+     */
+    public long getEndEpochSecond(){
+        return endSeconds;
     }
 
     /**
@@ -107,7 +131,7 @@ public class EpisodeModel {
         private String title = "";
         private String subTitle = "";
         private String description = "";
-        private Image image = null;
+        private String imageUrl = "";
         private String programName = "";
         private Instant startTime = null;
         private Instant endTime = null;
@@ -134,8 +158,8 @@ public class EpisodeModel {
         }
 
         @Override
-        public void setImage(Image image) {
-            this.image = image;
+        public void setImageUrl(String imageUrl) {
+            this.imageUrl = imageUrl;
         }
 
         @Override
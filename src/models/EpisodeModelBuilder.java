@@ -1,6 +1,5 @@
 package models;
 
-import java.awt.*;
 import java.time.Instant;
 
 /**
@@ -11,7 +10,7 @@ public interface EpisodeModelBuilder {
     void setTitle(String title);
     void setSubtitle(String subtitle);
     void setDescription(String description);
-    void setImage(Image image);
+    void setImageUrl(String imageUrl);
     void setProgramName(String programName);
     void setStartTime(Instant startTime);
     void setEndTime(Instant endTime);
@@ -0,0 +1,223 @@
+package models;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index over the titles, subtitles, program names and descriptions of the saved episodes of all channels.
+ * Words are folded to lower case with Swedish rules, and are also indexed without diacritics so that a search for
+ * "malmo" finds "Malmö" while a search for "malmö" only finds words spelled with ö.
+ * Every word of a search must match the start of a word in the episode.
+ * The index works on texts rather than on episodes: equal texts are indexed together, so each distinct text is
+ * split into words once however many episodes and channels it appears in.
+ * When the list of a channel is replaced only the episodes that were added or removed are indexed or removed.
+ * The index can be updated and searched from any thread.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class EpisodeSearchIndex {
+    private static final Locale SWEDISH = Locale.forLanguageTag("sv-SE");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    //every indexed word and the texts it appears in, sorted so that words starting with a prefix can be found
+    private final TreeMap<String, Set<String>> wordTexts = new TreeMap<>();
+    //every indexed text and the episodes it appears in
+    private final Map<String, Set<Hit>> textHits = new HashMap<>();
+    private final Map<Integer, Set<EpisodeModel>> channelEpisodes = new HashMap<>();
+
+    /**
+     * An episode that matched a search
+     * @param channelId id of the channel that broadcasts the episode
+     * @param episode the episode
+     */
+    public record Hit(int channelId, EpisodeModel episode) {}
+
+    /**
+     * Replaces the indexed episodes of a channel, episodes that are in both the old and the new list are kept as they are
+     * @param channelId id of the channel
+     * @param episodes the new list of episodes of the channel
+     */
+    public void replaceChannel(int channelId, List<EpisodeModel> episodes){
+        Set<EpisodeModel> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        updated.addAll(episodes);
+        lock.writeLock().lock();
+        try {
+            Set<EpisodeModel> indexed = channelEpisodes.computeIfAbsent(channelId,
+                    id -> Collections.newSetFromMap(new IdentityHashMap<>()));
+            for(EpisodeModel e : new ArrayList<>(indexed)){
+                if(!updated.contains(e)){
+                    remove(new Hit(channelId, e));
+                    indexed.remove(e);
+                }
+            }
+            for(EpisodeModel e : updated){
+                if(indexed.add(e)){
+                    add(new Hit(channelId, e));
+                }
+            }
+            if(indexed.isEmpty()){
+                channelEpisodes.remove(channelId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the episodes in which every word of the query matches the start of a word
+     * @param query words to search for
+     * @param limit the largest number of episodes to return
+     * @return matching episodes sorted by start time, empty if the query has no words
+     */
+    public List<Hit> search(String query, int limit){
+        List<String> words = new ArrayList<>(words(query));
+        if(words.isEmpty()){
+            return List.of();
+        }
+        Set<Hit> matches = null;
+        lock.readLock().lock();
+        try {
+            for(String word : words){
+                Set<Hit> wordMatches = new HashSet<>();
+                NavigableMap<String, Set<String>> prefixed = wordTexts.subMap(word, true, word + Character.MAX_VALUE, false);
+                for(Set<String> texts : prefixed.values()){
+                    for(String text : texts){
+                        Set<Hit> hits = textHits.get(text);
+                        if(hits == null){
+                            continue;
+                        }
+                        if(matches == null){
+                            wordMatches.addAll(hits);
+                        }
+                        else {
+                            //only keep episodes that matched the earlier words
+                            for(Hit hit : hits){
+                                if(matches.contains(hit)){
+                                    wordMatches.add(hit);
+                                }
+                            }
+                        }
+                    }
+                }
+                matches = wordMatches;
+                if(matches.isEmpty()){
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> results = new ArrayList<>(matches);
+        results.sort(Comparator.comparingLong((Hit hit) -> hit.episode().getStartEpochSecond())
+                .thenComparingInt(Hit::channelId));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * @return the number of distinct words in the index
+     */
+    public int getWordCount(){
+        lock.readLock().lock();
+        try {
+            return wordTexts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a text into words folded to lower case, each word is given both as it is and without diacritics
+     * @param text the text to split
+     * @return the distinct words of the text
+     */
+    static Set<String> words(String text){
+        Set<String> words = new HashSet<>();
+        if(text == null || text.isEmpty()){
+            return words;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(SWEDISH);
+        int start = -1;
+        for(int i = 0 ; i <= normalized.length() ; i++){
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if(letter && start < 0){
+                start = i;
+            }
+            else if(!letter && start >= 0){
+                String word = normalized.substring(start, i);
+                words.add(word);
+                words.add(withoutDiacritics(word));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static String withoutDiacritics(String word){
+        for(int i = 0 ; i < word.length() ; i++){
+            if(word.charAt(i) > 127){
+                String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+                return DIACRITICS.matcher(decomposed).replaceAll("");
+            }
+        }
+        return word;
+    }
+
+    private void add(Hit hit){
+        for(String text : texts(hit.episode())){
+            Set<Hit> hits = textHits.get(text);
+            if(hits == null){
+                //a text that has not been seen before is split into words once
+                hits = new HashSet<>();
+                textHits.put(text, hits);
+                for(String word : words(text)){
+                    wordTexts.computeIfAbsent(word, w -> new HashSet<>()).add(text);
+                }
+            }
+            hits.add(hit);
+        }
+    }
+
+    private void remove(Hit hit){
+        for(String text : texts(hit.episode())){
+            Set<Hit> hits = textHits.get(text);
+            if(hits == null || !hits.remove(hit) || !hits.isEmpty()){
+                continue;
+            }
+            textHits.remove(text);
+            for(String word : words(text)){
+                Set<String> texts = wordTexts.get(word);
+                if(texts != null){
+                    texts.remove(text);
+                    if(texts.isEmpty()){
+                        wordTexts.remove(word);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> texts(EpisodeModel episode){
+        List<String> texts = new ArrayList<>(4);
+        for(String text : new String[]{episode.getTitle(), episode.getSubTitle(), episode.getProgramName(),
+                episode.getDescription()}){
+            if(text != null && !text.isEmpty() && !texts.contains(text)){
+                texts.add(text);
+            }
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,245 @@
+package models;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The episodes of one channel sorted by start time, with start and end times kept as epoch seconds
+ * in primitive arrays so that the episode on air, the next episodes and the episodes in a time window
+ * can be found by binary search.
+ * A timeline is immutable and can be shared between threads. Episodes that are no longer of interest are
+ * dropped from the start with evictStartingBefore, which returns a timeline that reuses the same arrays
+ * until most of them are unused.
+ * Times are compared to the second, episodes without a start time are left out.
+ * @version 1.1 reads the times of the episodes as epoch seconds
+ * @since 2026-10-18
+ */
+public final class EpisodeTimeline {
+    private static final EpisodeTimeline EMPTY = new EpisodeTimeline(new EpisodeModel[0]);
+    private final EpisodeModel[] episodes;
+    private final long[] starts;
+    private final long[] ends;
+    //the latest end time of the episodes up to and including each index
+    private final long[] maxEnds;
+    private final int from;
+    private final int to;
+    private final List<EpisodeModel> view;
+
+    /**
+     * @param episodes episodes sorted by start time, every episode has a start time
+     */
+    private EpisodeTimeline(EpisodeModel[] episodes){
+        this.episodes = episodes;
+        from = 0;
+        to = episodes.length;
+        starts = new long[episodes.length];
+        ends = new long[episodes.length];
+        maxEnds = new long[episodes.length];
+        long maxEnd = Long.MIN_VALUE;
+        for(int i = 0 ; i < episodes.length ; i++){
+            EpisodeModel e = episodes[i];
+            starts[i] = e.getStartEpochSecond();
+            //an episode without end time is treated as ending when it starts
+            ends[i] = e.getEndEpochSecond() == Long.MIN_VALUE ? starts[i] : e.getEndEpochSecond();
+            maxEnd = Math.max(maxEnd, ends[i]);
+            maxEnds[i] = maxEnd;
+        }
+        view = new EpisodeView(from, to);
+    }
+
+    /**
+     * Shares the arrays of another timeline with a different first episode
+     */
+    private EpisodeTimeline(EpisodeTimeline timeline, int from){
+        episodes = timeline.episodes;
+        starts = timeline.starts;
+        ends = timeline.ends;
+        maxEnds = timeline.maxEnds;
+        this.from = from;
+        to = timeline.to;
+        view = new EpisodeView(from, to);
+    }
+
+    /**
+     * Creates a timeline from a list of episodes, the list is only sorted if it is not already sorted by start time
+     * @param episodeList the episodes of a channel
+     * @return timeline with the episodes that have a start time
+     */
+    public static EpisodeTimeline of(List<EpisodeModel> episodeList){
+        ArrayList<EpisodeModel> sorted = new ArrayList<>(episodeList.size());
+        boolean inOrder = true;
+        for(EpisodeModel e : episodeList){
+            if(e.getStartEpochSecond() == Long.MIN_VALUE){
+                continue;
+            }
+            if(!sorted.isEmpty() && e.getStartEpochSecond() < sorted.get(sorted.size() - 1).getStartEpochSecond()){
+                inOrder = false;
+            }
+            sorted.add(e);
+        }
+        if(sorted.isEmpty()){
+            return EMPTY;
+        }
+        if(!inOrder){
+            sorted.sort(Comparator.comparingLong(EpisodeModel::getStartEpochSecond));
+        }
+        return new EpisodeTimeline(sorted.toArray(new EpisodeModel[0]));
+    }
+
+    /**
+     * @return the number of episodes in the timeline
+     */
+    public int size(){
+        return to - from;
+    }
+
+    /**
+     * @return true if the timeline has no episodes
+     */
+    public boolean isEmpty(){
+        return from == to;
+    }
+
+    /**
+     * @return all episodes in the timeline sorted by start time, as an unmodifiable list that is not copied
+     */
+    public List<EpisodeModel> getEpisodes(){
+        return view;
+    }
+
+    /**
+     * Finds the episode that is broadcast at the given time.
+     * If episodes overlap, the one that started last is returned
+     * @param now the time to check
+     * @return the episode on air at the given time, or null if there is none
+     */
+    public EpisodeModel getNowPlaying(Instant now){
+        long time = now.getEpochSecond();
+        //episodes after this index start after the given time
+        int i = firstStartingAfter(time) - 1;
+        //walk back only as long as some earlier episode can still be on air
+        while(i >= from && maxEnds[i] > time){
+            if(ends[i] > time){
+                return episodes[i];
+            }
+            i--;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the episodes that start after the given time
+     * @param now the time to check
+     * @param count the largest number of episodes to get
+     * @return up to count episodes that start after the given time, sorted by start time
+     */
+    public List<EpisodeModel> getNext(Instant now, int count){
+        int start = firstStartingAfter(now.getEpochSecond());
+        return new EpisodeView(start, (int) Math.min(to, (long) start + Math.max(0, count)));
+    }
+
+    /**
+     * Gets the episodes that start within a time window
+     * @param windowStart the first time of the window
+     * @param windowEnd the time after the window
+     * @return the episodes that start at or after windowStart and before windowEnd, sorted by start time
+     */
+    public List<EpisodeModel> getWindow(Instant windowStart, Instant windowEnd){
+        int start = firstStartingAtOrAfter(windowStart);
+        int end = Math.max(start, firstStartingAtOrAfter(windowEnd));
+        return new EpisodeView(start, end);
+    }
+
+    /**
+     * @return the latest end time of the episodes in the timeline, or null if it is empty
+     */
+    public Instant getLastEnd(){
+        return isEmpty() ? null : Instant.ofEpochSecond(maxEnds[to - 1]);
+    }
+
+    /**
+     * Drops the episodes that start before the given time. The arrays of this timeline are reused
+     * until less than half of them are in use, then the remaining episodes are copied
+     * @param cutoff episodes starting before this time are dropped
+     * @return timeline with the episodes that start at or after the cutoff, this timeline if none were dropped
+     */
+    public EpisodeTimeline evictStartingBefore(Instant cutoff){
+        int newFrom = firstStartingAtOrAfter(cutoff);
+        if(newFrom == from){
+            return this;
+        }
+        if(newFrom == to){
+            return EMPTY;
+        }
+        if((to - newFrom) * 2 < episodes.length){
+            EpisodeModel[] remaining = new EpisodeModel[to - newFrom];
+            System.arraycopy(episodes, newFrom, remaining, 0, remaining.length);
+            return new EpisodeTimeline(remaining);
+        }
+        return new EpisodeTimeline(this, newFrom);
+    }
+
+    /**
+     * @return index of the first episode starting at or after the given time, rounded up to whole seconds
+     */
+    private int firstStartingAtOrAfter(Instant time){
+        long seconds = time.getEpochSecond();
+        return firstStartingAfter(time.getNano() == 0 ? seconds - 1 : seconds);
+    }
+
+    /**
+     * @return index of the first episode starting after the given epoch second, or to if there is none
+     */
+    private int firstStartingAfter(long time){
+        int low = from;
+        int high = to;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(starts[middle] <= time){
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Unmodifiable view of a range of the sorted episodes
+     */
+    private final class EpisodeView extends AbstractList<EpisodeModel> implements RandomAccess {
+        private final int start;
+        private final int end;
+
+        EpisodeView(int start, int end){
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public EpisodeModel get(int index){
+            if(index < 0 || index >= end - start){
+                throw new IndexOutOfBoundsException(index);
+            }
+            return episodes[start + index];
+        }
+
+        @Override
+        public int size(){
+            return end - start;
+        }
+
+        @Override
+        public List<EpisodeModel> subList(int fromIndex, int toIndex){
+            if(fromIndex < 0 || toIndex > size() || fromIndex > toIndex){
+                throw new IndexOutOfBoundsException(fromIndex);
+            }
+            return new EpisodeView(start + fromIndex, start + toIndex);
+        }
+    }
+}
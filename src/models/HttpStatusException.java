@@ -0,0 +1,24 @@
+package models;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the SR API answers a request with something other than 200 OK
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class HttpStatusException extends IOException {
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String url){
+        super(statusCode + " från " + url);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return the HTTP status code that the API responded with
+     */
+    public int getStatusCode(){
+        return statusCode;
+    }
+}
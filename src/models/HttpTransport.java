@@ -0,0 +1,46 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Sends HTTP requests for the application, everything that APIHandler fetches goes through a transport.
+ * The transport can be replaced, for example to send requests to a local server in tests.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public interface HttpTransport {
+
+    /**
+     * Sends a GET request
+     * @param url url to request
+     * @param requestHeaders extra headers to send with the request
+     * @return the response, which must be closed when it has been read
+     * @throws IOException if no response could be received
+     */
+    Response get(String url, Map<String, String> requestHeaders) throws IOException;
+
+    /**
+     * A response to a request, closing it lets the connection be reused for later requests
+     */
+    interface Response extends Closeable {
+        /**
+         * @return the HTTP status code of the response
+         */
+        int getStatusCode();
+
+        /**
+         * @param name name of a response header
+         * @return the value of the header or null if the response did not have it
+         */
+        String getHeader(String name);
+
+        /**
+         * @return stream with the decoded body of the response
+         * @throws IOException if the body can not be read
+         */
+        InputStream getBody() throws IOException;
+    }
+}
@@ -0,0 +1,144 @@
+package models;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of scaled cover images keyed by the url they were downloaded from.
+ * The cache holds at most a configurable number of bytes of pixel data, when it is full the least recently
+ * used images are evicted. Counts hits, misses and evictions so that its effectiveness can be checked,
+ * the counts of the shared cache can also be read through the shared Metrics.
+ * @version 1.1 the shared cache is reported in the metrics
+ * @since 2026-10-18
+ */
+public class ImageCache {
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("radioinfo.images.cacheBytes", 8L * 1024 * 1024);
+    private static final ImageCache sharedCache = new ImageCache(DEFAULT_MAX_BYTES);
+
+    static {
+        Metrics metrics = Metrics.getSharedMetrics();
+        metrics.gauge("imageCache.hits", sharedCache::getHitCount);
+        metrics.gauge("imageCache.misses", sharedCache::getMissCount);
+        metrics.gauge("imageCache.evictions", sharedCache::getEvictionCount);
+        metrics.gauge("imageCache.bytes", sharedCache::getSizeInBytes);
+    }
+    private final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maxBytes;
+    private long currentBytes = 0;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty cache
+     * @param maxBytes the maximum number of bytes of pixel data to keep in the cache
+     */
+    public ImageCache(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the image cache shared by the whole application,
+     * its size is set by the system property radioinfo.images.cacheBytes
+     */
+    public static ImageCache getSharedCache(){
+        return sharedCache;
+    }
+
+    /**
+     * Gets the image saved for the given url and marks it as recently used
+     * @param url link that the image was downloaded from
+     * @return the saved image or null if there is no image saved for the url
+     */
+    public synchronized BufferedImage get(String url){
+        BufferedImage image = images.get(url);
+        if(image == null){
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return image;
+    }
+
+    /**
+     * Saves an image and evicts the least recently used images until the cache is within its size limit.
+     * Images larger than the whole cache are not saved.
+     * @param url link that the image was downloaded from
+     * @param image the image to save
+     */
+    public synchronized void put(String url, BufferedImage image){
+        long size = sizeOf(image);
+        if(size > maxBytes){
+            return;
+        }
+        BufferedImage previous = images.put(url, image);
+        if(previous != null){
+            currentBytes -= sizeOf(previous);
+        }
+        currentBytes += size;
+        Iterator<Map.Entry<String, BufferedImage>> eldest = images.entrySet().iterator();
+        while(currentBytes > maxBytes && eldest.hasNext()){
+            Map.Entry<String, BufferedImage> entry = eldest.next();
+            currentBytes -= sizeOf(entry.getValue());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of bytes of pixel data currently in the cache
+     */
+    public synchronized long getSizeInBytes(){
+        return currentBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes of pixel data the cache may hold
+     */
+    public long getMaxBytes(){
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of images in the cache
+     */
+    public synchronized int getImageCount(){
+        return images.size();
+    }
+
+    /**
+     * @return number of lookups that found an image
+     */
+    public long getHitCount(){
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups that did not find an image
+     */
+    public long getMissCount(){
+        return misses.get();
+    }
+
+    /**
+     * @return number of images that have been evicted to keep the cache within its size limit
+     */
+    public long getEvictionCount(){
+        return evictions.get();
+    }
+
+    /**
+     * Calculates how many bytes the pixel data of an image takes up
+     * @param image the image to measure
+     * @return size of the images data buffer in bytes
+     */
+    static long sizeOf(BufferedImage image){
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
@@ -0,0 +1,80 @@
+package models;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downloads cover images in the background.
+ * Downloaded images are kept in the shared ImageCache and saved to the DiskCache, several requests for the same url
+ * while it is being downloaded share one download.
+ * The time to read an image from disk is recorded in the shared Metrics.
+ * @version 1.1 records the time to read images from disk
+ * @since 2026-10-18
+ */
+public class ImageLoader {
+    private static final int PARALLELISM = Integer.getInteger("radioinfo.images.parallelism", 6);
+    private static final ImageLoader sharedLoader = new ImageLoader();
+    private final ExecutorService executor = BackgroundExecutors.create("image-loader", PARALLELISM);
+    private final Semaphore permits = new Semaphore(Math.max(1, PARALLELISM));
+    private final Map<String, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+    private final ImageCache cache = ImageCache.getSharedCache();
+    private final DiskCache diskCache = DiskCache.getSharedCache();
+
+    /**
+     * @return the image loader shared by the whole application
+     */
+    public static ImageLoader getSharedLoader(){
+        return sharedLoader;
+    }
+
+    /**
+     * Gets the image at the given url from the cache, or starts downloading it unless it is already being downloaded
+     * @param url link to the image
+     * @return future that completes with the image, or with null if the image could not be accessed
+     */
+    public CompletableFuture<Image> load(String url){
+        BufferedImage cached = cache.get(url);
+        if(cached != null){
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Image> image = inFlight.computeIfAbsent(url, this::download);
+        image.whenComplete((result, error) -> inFlight.remove(url, image));
+        return image;
+    }
+
+    private CompletableFuture<Image> download(String url){
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            try {
+                //images saved by an earlier session are read from disk instead of being downloaded
+                long start = System.nanoTime();
+                BufferedImage image = diskCache.loadImage(url);
+                if(image != null){
+                    Metrics.getSharedMetrics().histogram("image.disk").recordSince(start);
+                }
+                else {
+                    image = new APIHandler().getImage(url);
+                    if(image != null){
+                        diskCache.saveImage(url, image);
+                    }
+                }
+                if(image != null){
+                    cache.put(url, image);
+                }
+                return (Image) image;
+            } finally {
+                permits.release();
+            }
+        }, executor).exceptionally(e -> null); //skip the image if it could not be decoded
+    }
+}
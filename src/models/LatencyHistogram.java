@@ -0,0 +1,112 @@
+package models;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long something takes, in buckets whose upper bounds double from one microsecond up to about
+ * 35 minutes. Recording only adds to striped counters, so threads that record at the same time do not wait
+ * for each other and the cost is a few nanoseconds. Percentiles are only worked out when a snapshot is taken,
+ * and are given as the upper bound of the bucket they fall in, which is at most twice the real value.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class LatencyHistogram {
+    //bucket i counts durations of less than 2^i microseconds that did not fit in bucket i - 1
+    private static final int BUCKET_COUNT = 32;
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram
+     */
+    public LatencyHistogram(){
+        for(int i = 0 ; i < BUCKET_COUNT ; i++){
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one duration
+     * @param nanos the duration in nanoseconds, negative durations are counted as 0
+     */
+    public void record(long nanos){
+        nanos = Math.max(0, nanos);
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the time since the given start
+     * @param startNanos a value of System.nanoTime taken when the measured work started
+     */
+    public void recordSince(long startNanos){
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the durations recorded so far. Durations recorded while the snapshot is taken may be left out
+     * of some of its values
+     */
+    public Snapshot snapshot(){
+        long[] counts = new long[BUCKET_COUNT];
+        for(int i = 0 ; i < BUCKET_COUNT ; i++){
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(count.sum(), totalNanos.sum(), maxNanos.get(), counts);
+    }
+
+    /**
+     * The recorded durations at one point in time
+     * @param count number of recorded durations
+     * @param totalNanos sum of all recorded durations
+     * @param maxNanos the longest recorded duration
+     * @param bucketCounts number of durations in each bucket
+     */
+    public record Snapshot(long count, long totalNanos, long maxNanos, long[] bucketCounts) {
+        /**
+         * @return the mean duration in microseconds, 0 if nothing has been recorded
+         */
+        public double meanMicros(){
+            return count == 0 ? 0 : totalNanos / 1000.0 / count;
+        }
+
+        /**
+         * @return the longest duration in microseconds
+         */
+        public long maxMicros(){
+            return maxNanos / 1000;
+        }
+
+        /**
+         * Estimates a percentile of the recorded durations
+         * @param percentile the percentile, between 0 and 100
+         * @return upper bound in microseconds of the bucket the percentile falls in, never more than the longest
+         * duration, 0 if nothing has been recorded
+         */
+        public long percentileMicros(double percentile){
+            long total = 0;
+            for(long c : bucketCounts){
+                total += c;
+            }
+            if(total == 0){
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for(int i = 0 ; i < bucketCounts.length ; i++){
+                seen += bucketCounts[i];
+                if(seen >= Math.max(1, rank)){
+                    return Math.min(1L << i, Math.max(1, maxMicros()));
+                }
+            }
+            return maxMicros();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package models;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, latency histograms and gauges that show where the application spends its time.
+ * Counters and histograms are created the first time they are asked for and are cheap to update from any thread,
+ * nothing is computed until someone reads them through MetricsReporter or snapshot.
+ * Names are dot separated and start with what is measured, for example http.schedule or episodeCache.hits.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class Metrics {
+    private static final Metrics sharedMetrics = new Metrics();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @return the metrics shared by the whole application
+     */
+    public static Metrics getSharedMetrics(){
+        return sharedMetrics;
+    }
+
+    /**
+     * Gets a counter, callers that update it often should keep the returned counter instead of looking it up
+     * @param name name of the counter
+     * @return the counter with the given name
+     */
+    public LongAdder counter(String name){
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Gets a latency histogram, callers that update it often should keep the returned histogram instead of
+     * looking it up
+     * @param name name of the histogram
+     * @return the histogram with the given name
+     */
+    public LatencyHistogram histogram(String name){
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Adds a value that is read when the metrics are read, such as the number of hits counted by a cache.
+     * A gauge with the same name is replaced
+     * @param name name of the gauge
+     * @param value gives the current value, must be cheap and safe to call from any thread
+     */
+    public void gauge(String name, LongSupplier value){
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return the current value of every counter and gauge, sorted by name
+     */
+    public Map<String, Long> snapshotValues(){
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * @return a snapshot of every histogram, sorted by name
+     */
+    public Map<String, LatencyHistogram.Snapshot> snapshotHistograms(){
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+}
@@ -0,0 +1,199 @@
+package models;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes the shared Metrics readable from outside the application, as the MBean radioinfo:type=Metrics
+ * that JConsole or VisualVM can show, and as a dump every few seconds to a CSV file or to the log.
+ * Each counter and gauge is an attribute with its own name, each histogram gives the attributes
+ * name.count, name.meanMicros, name.p50Micros, name.p90Micros, name.p99Micros and name.maxMicros.
+ * Values are only computed when they are read.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class MetricsReporter implements DynamicMBean {
+    private static final String OBJECT_NAME = "radioinfo:type=Metrics";
+    private static final String CSV_HEADER = "time,metric,count,meanMicros,p50Micros,p90Micros,p99Micros,maxMicros";
+    private static final Logger logger = Logger.getLogger("radioinfo.metrics");
+    private static boolean started = false;
+    private final Metrics metrics;
+
+    /**
+     * @param metrics the metrics to report
+     */
+    public MetricsReporter(Metrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts reporting the shared metrics as set by system properties, calls after the first do nothing.
+     * The MBean is registered unless radioinfo.metrics.jmx is false. If radioinfo.metrics.dumpSeconds is set
+     * the metrics are dumped that often and when the application exits, to the file named by radioinfo.metrics.csv
+     * or else to the log. The work is done on a background thread so that it does not delay startup
+     */
+    public static synchronized void startShared(){
+        if(started){
+            return;
+        }
+        started = true;
+        MetricsReporter reporter = new MetricsReporter(Metrics.getSharedMetrics());
+        boolean jmx = !"false".equals(System.getProperty("radioinfo.metrics.jmx"));
+        int dumpSeconds = Integer.getInteger("radioinfo.metrics.dumpSeconds", 0);
+        String csv = System.getProperty("radioinfo.metrics.csv");
+        Path csvFile = csv == null ? null : Path.of(csv);
+        if(!jmx && dumpSeconds <= 0){
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if(jmx){
+            executor.execute(reporter::register);
+        }
+        if(dumpSeconds > 0){
+            executor.scheduleAtFixedRate(() -> reporter.dump(csvFile), dumpSeconds, dumpSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> reporter.dump(csvFile), "metrics-final-dump"));
+        }
+    }
+
+    /**
+     * Registers this reporter with the platform MBean server, failures are logged and otherwise ignored
+     */
+    public void register(){
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Kunde inte registrera mätvärden i JMX", e);
+        }
+    }
+
+    /**
+     * Writes the current value of every metric, appended as rows to a CSV file or as lines to the log
+     * @param csvFile file to append to, a header is written first if the file is empty; null to write to the log
+     */
+    public void dump(Path csvFile){
+        List<String> rows = rows(Instant.now());
+        if(csvFile == null){
+            for(String row : rows){
+                logger.info(row);
+            }
+            return;
+        }
+        try(BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)){
+            if(Files.size(csvFile) == 0){
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            for(String row : rows){
+                writer.write(row);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Kunde inte skriva mätvärden till " + csvFile, e);
+        }
+    }
+
+    /**
+     * @return one CSV row per metric, counters and gauges only fill in the count column
+     */
+    private List<String> rows(Instant time){
+        List<String> rows = new ArrayList<>();
+        metrics.snapshotValues().forEach((name, value) -> rows.add(time + "," + name + "," + value + ",,,,,"));
+        metrics.snapshotHistograms().forEach((name, s) -> rows.add(String.format(Locale.ROOT,
+                "%s,%s,%d,%.1f,%d,%d,%d,%d", time, name, s.count(), s.meanMicros(), s.percentileMicros(50),
+                s.percentileMicros(90), s.percentileMicros(99), s.maxMicros())));
+        return rows;
+    }
+
+    /**
+     * @return the value of every attribute by name
+     */
+    private Map<String, Object> attributes(){
+        Map<String, Object> attributes = new LinkedHashMap<>(metrics.snapshotValues());
+        metrics.snapshotHistograms().forEach((name, s) -> {
+            attributes.put(name + ".count", s.count());
+            attributes.put(name + ".meanMicros", s.meanMicros());
+            attributes.put(name + ".p50Micros", s.percentileMicros(50));
+            attributes.put(name + ".p90Micros", s.percentileMicros(90));
+            attributes.put(name + ".p99Micros", s.percentileMicros(99));
+            attributes.put(name + ".maxMicros", s.maxMicros());
+        });
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if(value == null){
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for(String name : names){
+            if(attributes.containsKey(name)){
+                list.add(new Attribute(name, attributes.get(name)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " kan inte ändras");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        //all attributes are read only
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        attributes().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name, value.getClass().getName(),
+                name, true, false, false)));
+        return new MBeanInfo(getClass().getName(), "Mätvärden för RadioInfo",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,147 @@
+package models;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of what is on air on every channel at once.
+ * The current and next episodes come from the saved schedule of a channel when there is one,
+ * else from the latest bulk fetch of what is on air. The channels are indexed by the time their current
+ * episode ends, so that advancing to a new time only looks at the channels whose episodes have changed.
+ * All methods must be called on the event dispatch thread.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class NowPlayingIndex {
+    private final EpisodeListCache savedChannelSchedules;
+    private final Map<Integer, ChannelNowPlaying> channels = new LinkedHashMap<>();
+    //the channels whose shown episodes change at each time
+    private final TreeMap<Instant, Set<Integer>> transitions = new TreeMap<>();
+
+    /**
+     * @param savedChannelSchedules saved schedules, preferred over fetched episodes for the channels that have one
+     */
+    public NowPlayingIndex(EpisodeListCache savedChannelSchedules){
+        this.savedChannelSchedules = savedChannelSchedules;
+    }
+
+    /**
+     * Replaces what is known about all channels
+     * @param channelList all channels, in the order they are shown
+     * @param fetched current and next episodes fetched from the API, channels that are missing are only shown
+     *                with episodes from their saved schedule
+     * @param now current time
+     */
+    public void update(List<ChannelModel> channelList, List<ChannelNowPlaying> fetched, Instant now){
+        Map<Integer, ChannelNowPlaying> fetchedById = new HashMap<>();
+        for(ChannelNowPlaying c : fetched){
+            fetchedById.put(c.channel().getId(), c);
+        }
+        channels.clear();
+        transitions.clear();
+        for(ChannelModel channel : channelList){
+            ChannelNowPlaying known = fetchedById.getOrDefault(channel.getId(),
+                    new ChannelNowPlaying(channel, null, null));
+            put(resolve(new ChannelNowPlaying(channel, known.current(), known.next()), now));
+        }
+    }
+
+    /**
+     * Moves the index forward to the given time, channels whose current episode has ended get their next episode
+     * @param now current time
+     * @return ids of the channels whose current or next episode changed
+     */
+    public Set<Integer> advance(Instant now){
+        Set<Integer> changed = new HashSet<>();
+        while(!transitions.isEmpty() && !transitions.firstKey().isAfter(now)){
+            for(int channelId : transitions.pollFirstEntry().getValue()){
+                ChannelNowPlaying before = channels.get(channelId);
+                ChannelNowPlaying after = resolve(before, now);
+                put(after);
+                if(before.current() != after.current() || before.next() != after.next()){
+                    changed.add(channelId);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the next time at which the episodes of some channel change, or null if no change is known
+     */
+    public Instant getNextTransition(){
+        return transitions.isEmpty() ? null : transitions.firstKey();
+    }
+
+    /**
+     * @return true if some channel has no known next episode, which means a new fetch is needed to show it
+     */
+    public boolean isMissingEpisodes(){
+        for(ChannelNowPlaying c : channels.values()){
+            if(c.next() == null){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the current and next episode of every channel, in the order the channels were given
+     */
+    public List<ChannelNowPlaying> getChannels(){
+        return new ArrayList<>(channels.values());
+    }
+
+    /**
+     * Finds the episodes of a channel at the given time, from the saved schedule if there is one
+     * and else by moving on from the known episodes
+     */
+    private ChannelNowPlaying resolve(ChannelNowPlaying known, Instant now){
+        int channelId = known.channel().getId();
+        if(savedChannelSchedules.hasSavedEpisodeList(channelId)){
+            EpisodeModel current = savedChannelSchedules.getNowPlaying(channelId, now);
+            List<EpisodeModel> next = savedChannelSchedules.getNext(channelId, now, 1);
+            if(current != null || !next.isEmpty()){
+                return new ChannelNowPlaying(known.channel(), current, next.isEmpty() ? null : next.get(0));
+            }
+        }
+        EpisodeModel current = known.current();
+        EpisodeModel next = known.next();
+        if(current != null && !isOnAir(current, now)){
+            current = null;
+        }
+        if(current == null && next != null && next.getStartTime() != null && !next.getStartTime().isAfter(now)){
+            //the next episode has started
+            current = isOnAir(next, now) ? next : null;
+            next = null;
+        }
+        return new ChannelNowPlaying(known.channel(), current, next);
+    }
+
+    private void put(ChannelNowPlaying c){
+        int channelId = c.channel().getId();
+        channels.put(channelId, c);
+        Instant time = null;
+        if(c.current() != null && c.current().getEndTime() != null){
+            time = c.current().getEndTime();
+        }
+        else if(c.next() != null){
+            time = c.next().getStartTime();
+        }
+        if(time != null){
+            transitions.computeIfAbsent(time, t -> new HashSet<>()).add(channelId);
+        }
+    }
+
+    private static boolean isOnAir(EpisodeModel episode, Instant now){
+        return episode.getStartTime() != null && !episode.getStartTime().isAfter(now) &&
+                (episode.getEndTime() == null || now.isBefore(episode.getEndTime()));
+    }
+}
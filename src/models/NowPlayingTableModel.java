@@ -0,0 +1,113 @@
+package models;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A table model that shows the current and next episode of every channel, one channel per row.
+ * As in RadioChannelTableModel the text of every cell is computed when a row is set, so that painting
+ * only looks up strings, and an update only tells the table about the rows that changed.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class NowPlayingTableModel extends AbstractTableModel {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int COLUMN_COUNT = 5;
+    private List<ChannelNowPlaying> channels;
+    private String[][] cells;
+
+    public NowPlayingTableModel(List<ChannelNowPlaying> channels){
+        this.channels = channels;
+        cells = computeCells(channels);
+    }
+
+    /**
+     * Replaces the rows of this model. If the channels are the same as before only the rows whose texts changed
+     * are updated in the table, else the whole table is updated.
+     * Must be called on the event dispatch thread.
+     * @param updated the current and next episode of every channel
+     */
+    public void update(List<ChannelNowPlaying> updated){
+        boolean sameChannels = updated.size() == channels.size();
+        for(int i = 0 ; sameChannels && i < updated.size() ; i++){
+            sameChannels = updated.get(i).channel().getId() == channels.get(i).channel().getId();
+        }
+        String[][] oldCells = cells;
+        channels = updated;
+        cells = computeCells(updated);
+        if(!sameChannels){
+            fireTableDataChanged();
+            return;
+        }
+        for(int row = 0 ; row < cells.length ; row++){
+            if(!Arrays.equals(cells[row], oldCells[row])){
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    /**
+     * @param index index of a row
+     * @return the channel shown on the row
+     */
+    public ChannelModel getChannel(int index){
+        return channels.get(index).channel();
+    }
+
+    @Override
+    public int getRowCount() {
+        return cells.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_COUNT;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return columnIndex >= 0 && columnIndex < COLUMN_COUNT ? cells[rowIndex][columnIndex] : null;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return switch (columnIndex) {
+            case 0 -> "Kanal:";
+            case 1 -> "Sänds nu:";
+            case 2 -> "Slutar:";
+            case 3 -> "Därefter:";
+            case 4 -> "Startar:";
+            default -> null;
+        };
+    }
+
+    private static String[][] computeCells(List<ChannelNowPlaying> channels){
+        DateTimeFormatter format = TIME_FORMAT.withZone(ZoneId.systemDefault());
+        String[][] cells = new String[channels.size()][];
+        for(int i = 0 ; i < cells.length ; i++){
+            ChannelNowPlaying c = channels.get(i);
+            cells[i] = new String[]{c.channel().getName(), label(c.current()),
+                    c.current() == null ? "" : formatTime(format, c.current().getEndTime()),
+                    label(c.next()), c.next() == null ? "" : formatTime(format, c.next().getStartTime())};
+        }
+        return cells;
+    }
+
+    /**
+     * @return the program name of the episode if it is available, else its title
+     */
+    private static String label(EpisodeModel episode){
+        if(episode == null){
+            return "";
+        }
+        return episode.getProgramName().isEmpty() ? episode.getTitle() : episode.getProgramName();
+    }
+
+    private static String formatTime(DateTimeFormatter format, Instant time){
+        return time == null ? "" : format.format(time);
+    }
+}
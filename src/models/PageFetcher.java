@@ -0,0 +1,359 @@
+package models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fetches every page of one or more paginated resources from the SR API.
+ * The first page of each resource is fetched to find out how many pages there are, the remaining pages
+ * are then fetched in parallel on a shared executor. Virtual threads are used when the JDK has them,
+ * the number of simultaneous requests is always limited by a semaphore.
+ * The time of every request is recorded in the shared Metrics.
+ * Pages can be handed to a listener as they arrive, so that they can be shown before the rest are fetched.
+ * @version 1.4 page listeners must not block the threads that send requests
+ * @since 2026-10-18
+ */
+public class PageFetcher {
+    private static final int PARALLELISM = Integer.getInteger("radioinfo.fetch.parallelism", 8);
+    private static final ExecutorService executor = BackgroundExecutors.create("page-fetcher", PARALLELISM);
+    //fair, so that pages are requested in the order they were submitted
+    private static final Semaphore permits = new Semaphore(Math.max(1, PARALLELISM), true);
+    //later pages share one histogram
+    private static final int MAX_PAGE_METRIC = 5;
+    private static final Metrics metrics = Metrics.getSharedMetrics();
+
+    /**
+     * Reads the content of one page from the response stream
+     * @param <T> the type that the page is read into
+     */
+    public interface PageReader<T> {
+        T read(InputStream in) throws Exception;
+    }
+
+    /**
+     * Told about each page as soon as it has been read
+     * @param <T> the type that the page is read into
+     */
+    public interface PageListener<T> {
+        /**
+         * Called on the thread that read the page, possibly for several pages at the same time.
+         * That thread belongs to the pool that sends every request, so the listener must not block
+         * @param page the read page
+         */
+        void pageRead(T page);
+    }
+
+    /**
+     * Decides in which order the pages after the first page of a resource are requested
+     */
+    public interface PageOrder {
+        /**
+         * @param resource index of the resource in the list of resources
+         * @param pageCount the number of pages of the resource
+         * @return the page numbers from 2 to pageCount in the order they should be requested,
+         * pages that are left out are requested last
+         */
+        List<Integer> order(int resource, int pageCount);
+    }
+
+    /**
+     * Fetches all pages of a single resource
+     * @param pageUrl function giving the url of a page from its page number (starting at 1)
+     * @param reader reads the response for a page
+     * @param pageCount gets the total number of pages from a read first page
+     * @return the pages in order together with any pages that failed
+     */
+    public <T> PagedResponse<T> fetchAll(IntFunction<String> pageUrl, PageReader<T> reader,
+                                         ToIntFunction<T> pageCount){
+        return fetchAll(List.of(pageUrl), reader, pageCount);
+    }
+
+    /**
+     * Fetches all pages of several resources. The first pages of all resources are requested at the same time,
+     * after that all remaining pages are requested at the same time.
+     * The returned pages are ordered by resource and then by page number.
+     * @param resources functions giving the url of a page from its page number (starting at 1), one per resource
+     * @param reader reads the response for a page
+     * @param pageCount gets the total number of pages from a read first page
+     * @return the pages in order together with any pages that failed
+     */
+    public <T> PagedResponse<T> fetchAll(List<IntFunction<String>> resources, PageReader<T> reader,
+                                         ToIntFunction<T> pageCount){
+        return fetchAll(resources, reader, pageCount, null);
+    }
+
+    /**
+     * Fetches all pages of several resources in the same way as fetchAll, but sends conditional requests
+     * for pages that are in the given cache. Pages that the API reports as not modified are taken from the cache
+     * without being read again.
+     * @param resources functions giving the url of a page from its page number (starting at 1), one per resource
+     * @param reader reads the response for a page
+     * @param pageCount gets the total number of pages from a read first page
+     * @param cache validators and read pages from earlier requests, or null to not send conditional requests
+     * @return the pages in order together with any pages that failed
+     */
+    public <T> PagedResponse<T> fetchAll(List<IntFunction<String>> resources, PageReader<T> reader,
+                                         ToIntFunction<T> pageCount, ConditionalResponseCache<T> cache){
+        return fetchAll(resources, reader, pageCount, cache, null, null);
+    }
+
+    /**
+     * Fetches all pages of several resources in the same way as fetchAll, and also hands each page to a listener
+     * as soon as it has been read so that it can be shown before the other pages have arrived.
+     * The remaining pages of each resource are requested in the given order once its page count is known.
+     * @param resources functions giving the url of a page from its page number (starting at 1), one per resource
+     * @param reader reads the response for a page
+     * @param pageCount gets the total number of pages from a read first page
+     * @param cache validators and read pages from earlier requests, or null to not send conditional requests
+     * @param listener told about every page that is read, in the order they arrive, or null
+     * @param order the order to request the remaining pages of a resource in, or null to request them by number
+     * @return the pages in order together with any pages that failed
+     */
+    public <T> PagedResponse<T> fetchAll(List<IntFunction<String>> resources, PageReader<T> reader,
+                                         ToIntFunction<T> pageCount, ConditionalResponseCache<T> cache,
+                                         PageListener<T> listener, PageOrder order){
+        List<Future<T>> firstPages = new ArrayList<>();
+        for(IntFunction<String> resource : resources){
+            firstPages.add(submit(resource.apply(1), 1, reader, cache, listener));
+        }
+        //as soon as the page count of a resource is known, request the rest of its pages
+        List<List<Future<T>>> allPages = new ArrayList<>();
+        List<List<String>> allUrls = new ArrayList<>();
+        List<PagedResponse.Failure> failures = new ArrayList<>();
+        for(int r = 0 ; r < resources.size() ; r++){
+            IntFunction<String> resource = resources.get(r);
+            List<Future<T>> pages = new ArrayList<>();
+            List<String> urls = new ArrayList<>();
+            allPages.add(pages);
+            allUrls.add(urls);
+            T first;
+            int count;
+            try {
+                first = await(firstPages.get(r));
+                //a first page with a malformed page count is a failed page like any other
+                count = pageCount.applyAsInt(first);
+            } catch (InterruptedException e) {
+                firstPages.forEach(page -> page.cancel(true));
+                cancelAll(allPages);
+                Thread.currentThread().interrupt();
+                failures.add(new PagedResponse.Failure(resource.apply(1), 1, e));
+                return new PagedResponse<>(new ArrayList<>(), failures);
+            } catch (Exception e) {
+                failures.add(new PagedResponse.Failure(resource.apply(1), 1, e));
+                continue;
+            }
+            pages.add(CompletableFuture.completedFuture(first));
+            urls.add(resource.apply(1));
+            Map<Integer, Future<T>> requested = new HashMap<>();
+            for(int i : order == null ? pageNumbers(count) : order.order(r, count)){
+                if(i >= 2 && i <= count && !requested.containsKey(i)){
+                    requested.put(i, submit(resource.apply(i), i, reader, cache, listener));
+                }
+            }
+            for(int i = 2 ; i <= count ; i++){
+                String url = resource.apply(i);
+                Future<T> page = requested.get(i);
+                pages.add(page != null ? page : submit(url, i, reader, cache, listener));
+                urls.add(url);
+            }
+        }
+        //collect the pages in order, a failed page does not stop the others from being collected
+        List<T> results = new ArrayList<>();
+        for(int r = 0 ; r < allPages.size() ; r++){
+            List<Future<T>> pages = allPages.get(r);
+            for(int i = 0 ; i < pages.size() ; i++){
+                try {
+                    results.add(await(pages.get(i)));
+                } catch (InterruptedException e) {
+                    //stop waiting, but let the pages that have arrived be returned
+                    cancelAll(allPages);
+                    Thread.currentThread().interrupt();
+                    failures.add(new PagedResponse.Failure(allUrls.get(r).get(i), i + 1, e));
+                    return new PagedResponse<>(results, failures);
+                } catch (Exception e) {
+                    failures.add(new PagedResponse.Failure(allUrls.get(r).get(i), i + 1, e));
+                }
+            }
+        }
+        return new PagedResponse<>(results, failures);
+    }
+
+    /**
+     * Requests the given url once through the transport of APIHandler and reads the response if the request succeeded.
+     * The time until the response arrives is recorded in the histogram http.endpoint, the time to read and parse it
+     * in parse.endpoint and the whole time for the page in http.endpoint.pageN, where endpoint is the last
+     * part of the path of the url
+     * @param url url of the page to get
+     * @param page number of the page, starting at 1
+     * @param reader reads the response
+     * @param cache validators and read pages from earlier requests, or null to send an unconditional request
+     * @return the read page, or the cached page if the API answered that it has not been modified
+     * @throws HttpStatusException if the API did not respond with 200 OK or 304 Not Modified
+     */
+    static <T> T readPage(String url, int page, PageReader<T> reader, ConditionalResponseCache<T> cache)
+            throws Exception {
+        String endpoint = endpointOf(url);
+        long start = System.nanoTime();
+        try {
+            T result = readPage(url, endpoint, reader, cache);
+            metrics.histogram("http." + endpoint + ".page" + Math.min(page, MAX_PAGE_METRIC)).recordSince(start);
+            return result;
+        } catch (Exception e) {
+            metrics.counter("http." + endpoint + ".failures").increment();
+            throw e;
+        }
+    }
+
+    private static <T> T readPage(String url, String endpoint, PageReader<T> reader,
+                                  ConditionalResponseCache<T> cache) throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        ConditionalResponseCache.Entry<T> cached = cache == null ? null : cache.get(url);
+        if(cached != null){
+            if(cached.etag() != null){
+                headers.put("If-None-Match", cached.etag());
+            }
+            if(cached.lastModified() != null){
+                headers.put("If-Modified-Since", cached.lastModified());
+            }
+        }
+        long start = System.nanoTime();
+        try(HttpTransport.Response response = APIHandler.getTransport().get(url, headers)){
+            metrics.histogram("http." + endpoint).recordSince(start);
+            int responseCode = response.getStatusCode();
+            if(responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null){
+                //nothing has changed, skip reading and parsing the response
+                cache.countNotModified();
+                metrics.counter("http." + endpoint + ".notModified").increment();
+                return cached.value();
+            }
+            if(responseCode != HttpURLConnection.HTTP_OK){
+                throw new HttpStatusException(responseCode, url);
+            }
+            long readStart = System.nanoTime();
+            T page = reader.read(response.getBody());
+            //the body is parsed while it is read, so this includes the time spent waiting for it
+            metrics.histogram("parse." + endpoint).recordSince(readStart);
+            if(cache != null){
+                cache.put(url, response.getHeader("ETag"), response.getHeader("Last-Modified"), page);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Names the endpoint of a url for metrics
+     * @param url url of a page
+     * @return the last part of the path of the url, for example channels or rightnow
+     */
+    static String endpointOf(String url){
+        int end = url.indexOf('?');
+        if(end < 0){
+            end = url.length();
+        }
+        int start = url.lastIndexOf('/', end - 1) + 1;
+        return start >= end ? "other" : url.substring(start, end);
+    }
+
+    private static <T> Future<T> submit(String url, int page, PageReader<T> reader, ConditionalResponseCache<T> cache,
+                                        PageListener<T> listener){
+        return executor.submit(() -> {
+            T read;
+            permits.acquire();
+            try {
+                read = readPage(url, page, reader, cache);
+            } finally {
+                permits.release();
+            }
+            //the permit is given back first, but the listener still runs on a thread of the pool, which is why
+            //listeners must hand the page on without waiting
+            if(listener != null){
+                listener.pageRead(read);
+            }
+            return read;
+        });
+    }
+
+    /**
+     * @return the numbers of the pages after the first, in increasing order
+     */
+    private static List<Integer> pageNumbers(int pageCount){
+        List<Integer> numbers = new ArrayList<>();
+        for(int i = 2 ; i <= pageCount ; i++){
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof Exception){
+                throw (Exception) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static <T> void cancelAll(List<List<Future<T>>> allPages){
+        for(List<Future<T>> pages : allPages){
+            for(Future<T> page : pages){
+                page.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * The result of fetching all pages of one or more resources
+     * @param <T> the type that pages were read into
+     */
+    public static class PagedResponse<T> {
+        private final List<T> pages;
+        private final List<Failure> failures;
+
+        PagedResponse(List<T> pages, List<Failure> failures){
+            this.pages = Collections.unmodifiableList(pages);
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * @return the pages that were fetched, ordered by resource and page number
+         */
+        public List<T> getPages(){
+            return pages;
+        }
+
+        /**
+         * @return the pages that could not be fetched
+         */
+        public List<Failure> getFailures(){
+            return failures;
+        }
+
+        /**
+         * @return true if every page was fetched
+         */
+        public boolean isComplete(){
+            return failures.isEmpty();
+        }
+
+        /**
+         * A page that could not be fetched and the reason why
+         */
+        public record Failure(String url, int page, Exception cause) {}
+    }
+}
@@ -1,22 +1,50 @@
 package models;
 
 import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A table model that defines how information about the episodes on a radio channel
  * should be displayed in a table
+ * The text of every cell is computed once when the model is created and kept in one array per column,
+ * so that painting the table only looks up strings. Create the model off the event dispatch thread
+ * when the list of episodes is large.
+ * A shown model is updated with the content of a newer model through update, which only tells the table
+ * about the rows that were removed, added or changed, and episodes can be inserted with insertEpisodes.
  * @author Samuel Sandlund
- * @version 2.0 ability to switch episode list removed, episodes is now final
+ * @version 2.4 the episodes of a page can be inserted without rebuilding the rows
  * @since 2023-02-07
  */
 public class RadioChannelTableModel extends AbstractTableModel {
-    private final List<EpisodeModel> episodes;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("d MMM HH:mm");
+    private List<EpisodeModel> episodes;
+    private String[] programNames;
+    private String[] startTimes;
+    private String[] endTimes;
 
     public RadioChannelTableModel(List<EpisodeModel> episodes){
         this.episodes = episodes;
+        int size = episodes.size();
+        programNames = new String[size];
+        startTimes = new String[size];
+        endTimes = new String[size];
+        DateTimeFormatter format = TIME_FORMAT.withZone(ZoneId.systemDefault());
+        //the same programs are broadcast many times, let those rows share one string
+        Map<String, String> sharedNames = new HashMap<>();
+        for(int i = 0 ; i < size ; i++){
+            EpisodeModel episode = episodes.get(i);
+            programNames[i] = sharedNames.computeIfAbsent(nameOf(episode), n -> n);
+            startTimes[i] = formatTime(format, episode.getStartTime());
+            endTimes[i] = formatTime(format, episode.getEndTime());
+        }
     }
 
     /**
@@ -35,9 +63,207 @@ public class RadioChannelTableModel extends AbstractTableModel {
         return episodes.get(index);
     }
 
+    /**
+     * Replaces the episodes of this model with the episodes of the given model.
+     * The episodes are matched by id, the table is told which rows were removed, added and changed
+     * so that it keeps its selection and scroll position. If the episodes that are in both lists are not in the
+     * same order, or if an id appears twice, the table is told that all rows have changed.
+     * Must be called on the event dispatch thread.
+     * @param updated model with the new list of episodes, its cell texts are reused
+     */
+    public void update(RadioChannelTableModel updated){
+        List<EpisodeModel> oldEpisodes = episodes;
+        String[] oldNames = programNames;
+        String[] oldStarts = startTimes;
+        String[] oldEnds = endTimes;
+        Map<Integer, Integer> newIndexes = indexById(updated.episodes);
+        Map<Integer, Integer> oldIndexes = indexById(oldEpisodes);
+        if(newIndexes == null || oldIndexes == null){
+            replaceWith(updated);
+            fireTableDataChanged();
+            return;
+        }
+        //the rows that are kept must be in the same order in both lists for row events to describe the change
+        int lastNewIndex = -1;
+        for(EpisodeModel e : oldEpisodes){
+            Integer newIndex = newIndexes.get(e.getId());
+            if(newIndex != null){
+                if(newIndex < lastNewIndex){
+                    replaceWith(updated);
+                    fireTableDataChanged();
+                    return;
+                }
+                lastNewIndex = newIndex;
+            }
+        }
+        //the rows are changed one group at a time and each event is given after its change, so that the table
+        //always sees the rows the event it handles describes: removals from the bottom up, then additions from
+        //the top down, then changes. The table is painted once they have all been handled
+        List<EpisodeModel> rowEpisodes = new ArrayList<>(oldEpisodes);
+        List<String> rowNames = new ArrayList<>(Arrays.asList(oldNames));
+        List<String> rowStarts = new ArrayList<>(Arrays.asList(oldStarts));
+        List<String> rowEnds = new ArrayList<>(Arrays.asList(oldEnds));
+        for(int end = oldEpisodes.size() - 1 ; end >= 0 ; end--){
+            if(newIndexes.containsKey(oldEpisodes.get(end).getId())){
+                continue;
+            }
+            int start = end;
+            while(start > 0 && !newIndexes.containsKey(oldEpisodes.get(start - 1).getId())){
+                start--;
+            }
+            for(List<?> column : List.of(rowEpisodes, rowNames, rowStarts, rowEnds)){
+                column.subList(start, end + 1).clear();
+            }
+            setRows(rowEpisodes, rowNames, rowStarts, rowEnds);
+            fireTableRowsDeleted(start, end);
+            end = start;
+        }
+        List<EpisodeModel> newEpisodes = updated.episodes;
+        for(int start = 0 ; start < newEpisodes.size() ; start++){
+            if(oldIndexes.containsKey(newEpisodes.get(start).getId())){
+                continue;
+            }
+            int end = start;
+            while(end + 1 < newEpisodes.size() && !oldIndexes.containsKey(newEpisodes.get(end + 1).getId())){
+                end++;
+            }
+            rowEpisodes.addAll(start, newEpisodes.subList(start, end + 1));
+            rowNames.addAll(start, Arrays.asList(updated.programNames).subList(start, end + 1));
+            rowStarts.addAll(start, Arrays.asList(updated.startTimes).subList(start, end + 1));
+            rowEnds.addAll(start, Arrays.asList(updated.endTimes).subList(start, end + 1));
+            setRows(rowEpisodes, rowNames, rowStarts, rowEnds);
+            fireTableRowsInserted(start, end);
+            start = end;
+        }
+        //the rows are now the rows of the updated model, only their texts may differ
+        replaceWith(updated);
+        for(int start = 0 ; start < episodes.size() ; start++){
+            if(!isChanged(start, oldIndexes.get(episodes.get(start).getId()), oldNames, oldStarts, oldEnds)){
+                continue;
+            }
+            int end = start;
+            while(end + 1 < episodes.size() &&
+                    isChanged(end + 1, oldIndexes.get(episodes.get(end + 1).getId()), oldNames, oldStarts, oldEnds)){
+                end++;
+            }
+            fireTableRowsUpdated(start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Adds episodes to rows that are sorted by start time, keeping them sorted. Meant for the pages
+     * of a schedule that is still being fetched: only the texts of the added episodes are computed, and the table
+     * is told about each group of rows that was inserted. Episodes without a start time and episodes that are
+     * already in the rows are left out.
+     * Must be called on the event dispatch thread.
+     * @param added the episodes to add, in any order
+     */
+    public void insertEpisodes(List<EpisodeModel> added){
+        List<EpisodeModel> sorted = new ArrayList<>();
+        for(EpisodeModel e : added){
+            if(e.getStartEpochSecond() != Long.MIN_VALUE){
+                sorted.add(e);
+            }
+        }
+        sorted.sort(Comparator.comparingLong(EpisodeModel::getStartEpochSecond));
+        DateTimeFormatter format = TIME_FORMAT.withZone(ZoneId.systemDefault());
+        int next = 0;
+        while(next < sorted.size()){
+            int row = rowAfter(sorted.get(next).getStartEpochSecond());
+            //the episodes that start before the episode of the row are inserted there together
+            long limit = row < episodes.size() ? episodes.get(row).getStartEpochSecond() : Long.MAX_VALUE;
+            List<EpisodeModel> group = new ArrayList<>();
+            for( ; next < sorted.size() && (group.isEmpty() || sorted.get(next).getStartEpochSecond() < limit) ;
+                 next++){
+                if(!isInRows(sorted.get(next), row)){
+                    group.add(sorted.get(next));
+                }
+            }
+            if(!group.isEmpty()){
+                insertRows(row, group, format);
+                fireTableRowsInserted(row, row + group.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return the first row whose episode starts after the given time, or the number of rows if there is none
+     */
+    private int rowAfter(long startEpochSecond){
+        int low = 0;
+        int high = episodes.size();
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(episodes.get(middle).getStartEpochSecond() <= startEpochSecond){
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return true if the episode is among the rows before the given row that start at the same time as it
+     */
+    private boolean isInRows(EpisodeModel episode, int row){
+        for(int i = row - 1 ; i >= 0 && episodes.get(i).getStartEpochSecond() == episode.getStartEpochSecond() ; i--){
+            if(episodes.get(i).getId() == episode.getId()){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertRows(int row, List<EpisodeModel> group, DateTimeFormatter format){
+        List<EpisodeModel> rowEpisodes = new ArrayList<>(episodes.size() + group.size());
+        rowEpisodes.addAll(episodes);
+        rowEpisodes.addAll(row, group);
+        String[] rowNames = withGap(programNames, row, group.size());
+        String[] rowStarts = withGap(startTimes, row, group.size());
+        String[] rowEnds = withGap(endTimes, row, group.size());
+        for(int i = 0 ; i < group.size() ; i++){
+            EpisodeModel episode = group.get(i);
+            rowNames[row + i] = nameOf(episode);
+            rowStarts[row + i] = formatTime(format, episode.getStartTime());
+            rowEnds[row + i] = formatTime(format, episode.getEndTime());
+        }
+        episodes = rowEpisodes;
+        programNames = rowNames;
+        startTimes = rowStarts;
+        endTimes = rowEnds;
+    }
+
+    /**
+     * @return a copy of the column with count empty cells before the given row
+     */
+    private static String[] withGap(String[] column, int row, int count){
+        String[] result = new String[column.length + count];
+        System.arraycopy(column, 0, result, 0, row);
+        System.arraycopy(column, row, result, row + count, column.length - row);
+        return result;
+    }
+
+    private void replaceWith(RadioChannelTableModel updated){
+        episodes = updated.episodes;
+        programNames = updated.programNames;
+        startTimes = updated.startTimes;
+        endTimes = updated.endTimes;
+    }
+
+    private void setRows(List<EpisodeModel> rowEpisodes, List<String> rowNames, List<String> rowStarts,
+                         List<String> rowEnds){
+        episodes = new ArrayList<>(rowEpisodes);
+        programNames = rowNames.toArray(new String[0]);
+        startTimes = rowStarts.toArray(new String[0]);
+        endTimes = rowEnds.toArray(new String[0]);
+    }
+
     @Override
     public int getRowCount() {
-        return episodes.size();
+        return programNames.length;
     }
 
     @Override
@@ -47,24 +273,12 @@ public class RadioChannelTableModel extends AbstractTableModel {
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        EpisodeModel episode = episodes.get(rowIndex);
-        switch (columnIndex){
-            case 0 -> {
-                //show the program name if it is available, else show the title of the episode
-                return episode.getProgramName().equals("") ? episode.getTitle() : episode.getProgramName();
-            }
-            case 1 -> {
-                return episode.getStartTime().atZone(ZoneId.systemDefault()).toLocalDateTime().
-                        format(DateTimeFormatter.ofPattern("d MMM HH:mm"));
-            }
-            case 2 -> {
-                return episode.getEndTime().atZone(ZoneId.systemDefault()).toLocalDateTime().
-                        format(DateTimeFormatter.ofPattern("d MMM HH:mm"));
-            }
-            default -> {
-                return null;
-            }
-        }
+        return switch (columnIndex) {
+            case 0 -> programNames[rowIndex];
+            case 1 -> startTimes[rowIndex];
+            case 2 -> endTimes[rowIndex];
+            default -> null;
+        };
     }
 
     @Override
@@ -76,4 +290,36 @@ public class RadioChannelTableModel extends AbstractTableModel {
             default -> null;
         };
     }
+
+    /**
+     * @return true if the row was in the old list and any of its texts differ from the old texts
+     */
+    private boolean isChanged(int row, Integer oldRow, String[] oldNames, String[] oldStarts, String[] oldEnds){
+        return oldRow != null && !(programNames[row].equals(oldNames[oldRow]) &&
+                startTimes[row].equals(oldStarts[oldRow]) && endTimes[row].equals(oldEnds[oldRow]));
+    }
+
+    /**
+     * @return the index of every episode by its id, or null if an id appears more than once
+     */
+    private static Map<Integer, Integer> indexById(List<EpisodeModel> episodes){
+        Map<Integer, Integer> indexes = new HashMap<>(episodes.size() * 2);
+        for(int i = 0 ; i < episodes.size() ; i++){
+            if(indexes.put(episodes.get(i).getId(), i) != null){
+                return null;
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the program name if it is available, else the title of the episode
+     */
+    private static String nameOf(EpisodeModel episode){
+        return episode.getProgramName().isEmpty() ? episode.getTitle() : episode.getProgramName();
+    }
+
+    private static String formatTime(DateTimeFormatter format, Instant time){
+        return time == null ? "" : format.format(time);
+    }
 }
@@ -0,0 +1,77 @@
+package models;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A table model that shows episodes found by a search, with the channel that broadcasts each episode.
+ * As in RadioChannelTableModel the text of every cell is computed when the model is created.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class SearchResultTableModel extends AbstractTableModel {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("d MMM HH:mm");
+    private final List<EpisodeSearchIndex.Hit> hits;
+    private final String[][] cells;
+
+    /**
+     * @param hits the episodes that were found
+     * @param channelNames gives the name of a channel from its id
+     */
+    public SearchResultTableModel(List<EpisodeSearchIndex.Hit> hits, IntFunction<String> channelNames){
+        this.hits = hits;
+        DateTimeFormatter format = TIME_FORMAT.withZone(ZoneId.systemDefault());
+        cells = new String[hits.size()][];
+        for(int i = 0 ; i < cells.length ; i++){
+            EpisodeModel episode = hits.get(i).episode();
+            String name = episode.getProgramName().isEmpty() ? episode.getTitle() : episode.getProgramName();
+            String title = episode.getTitle().equals(name) ? "" : episode.getTitle();
+            cells[i] = new String[]{name, title, channelNames.apply(hits.get(i).channelId()),
+                    episode.getStartTime() == null ? "" : format.format(episode.getStartTime())};
+        }
+    }
+
+    /**
+     * @return true if nothing was found
+     */
+    public boolean isEmpty(){
+        return hits.isEmpty();
+    }
+
+    /**
+     * @param index index of a row
+     * @return the episode shown on the row
+     */
+    public EpisodeModel getEpisode(int index){
+        return hits.get(index).episode();
+    }
+
+    @Override
+    public int getRowCount() {
+        return cells.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 4;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return columnIndex >= 0 && columnIndex < 4 ? cells[rowIndex][columnIndex] : null;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return switch (columnIndex) {
+            case 0 -> "Program:";
+            case 1 -> "Titel:";
+            case 2 -> "Kanal:";
+            case 3 -> "Sändningen startar:";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,191 @@
+package models;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class used to parse models for radio channels and episodes directly from responses
+ * from the Swedish public radio API, without building a document tree first.
+ * Gives the same models as XMLParser, which parses already built documents.
+ * @version 1.1 parses the current and next episodes of all channels from the rightnow response
+ * @since 2026-10-18
+ */
+public class StreamingXMLParser {
+    /**
+     * The models parsed from one page of a response
+     * @param items the parsed models in the order they appear in the page
+     * @param totalPages the total number of pages of the response, 1 if the response is not paginated
+     * @param <T> type of the parsed models
+     */
+    public record ParsedPage<T>(List<T> items, int totalPages) {}
+
+    /**
+     * Parses models for radio channels from one page of channels
+     * @param in stream with a response from the Swedish public radio API
+     * @return the parsed channels and the page count, if no channels could be parsed the list is empty
+     * @throws XMLStreamException if the response is not well-formed XML
+     */
+    public ParsedPage<ChannelModel> parseChannelPage(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = XMLParsers.createStreamReader(in);
+        try {
+            List<ChannelModel> channels = new ArrayList<>();
+            int totalPages = 1;
+            while(reader.hasNext()){
+                if(reader.next() != XMLStreamConstants.START_ELEMENT){continue;}//skip non-element events
+                switch (reader.getLocalName()){
+                    case "totalpages" -> totalPages = Integer.parseInt(reader.getElementText().trim());
+                    case "channel" -> {
+                        int channelId = Integer.parseInt(reader.getAttributeValue(null, "id"));
+                        String channelName = attributeOrEmpty(reader, "name");
+                        channels.add(new ChannelModel(channelId, channelName));
+                    }
+                    default -> {
+                        continue;//skip other elements
+                    }
+                }
+            }
+            return new ParsedPage<>(channels, totalPages);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses models for radio-program-episodes from one page of scheduled episodes
+     * Cover images are not downloaded here, they are loaded in the background when first needed
+     * @param in stream with a response from the Swedish public radio API
+     * @return the parsed episodes and the page count, if no episodes could be parsed the list is empty
+     * @throws XMLStreamException if the response is not well-formed XML
+     */
+    public ParsedPage<EpisodeModel> parseEpisodePage(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = XMLParsers.createStreamReader(in);
+        try {
+            List<EpisodeModel> episodes = new ArrayList<>();
+            int totalPages = 1;
+            while(reader.hasNext()){
+                if(reader.next() != XMLStreamConstants.START_ELEMENT){continue;}
+                switch (reader.getLocalName()){
+                    case "totalpages" -> totalPages = Integer.parseInt(reader.getElementText().trim());
+                    case "scheduledepisode" -> episodes.add(parseEpisode(reader));
+                    default -> {
+                        continue;
+                    }
+                }
+            }
+            return new ParsedPage<>(episodes, totalPages);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses what is on air on each channel from one page of the rightnow response, which for every channel
+     * has the current and the next scheduled episode
+     * @param in stream with a response from the Swedish public radio API
+     * @return the current and next episode of each channel on the page and the page count
+     * @throws XMLStreamException if the response is not well-formed XML
+     */
+    public ParsedPage<ChannelNowPlaying> parseRightNowPage(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = XMLParsers.createStreamReader(in);
+        try {
+            List<ChannelNowPlaying> channels = new ArrayList<>();
+            int totalPages = 1;
+            while(reader.hasNext()){
+                if(reader.next() != XMLStreamConstants.START_ELEMENT){continue;}
+                switch (reader.getLocalName()){
+                    case "totalpages" -> totalPages = Integer.parseInt(reader.getElementText().trim());
+                    case "channel" -> channels.add(parseChannelNowPlaying(reader));
+                    default -> {
+                        continue;
+                    }
+                }
+            }
+            return new ParsedPage<>(channels, totalPages);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses the current and next episode of one channel, the reader must be positioned at the start of a channel
+     * element and is left at its end
+     */
+    private ChannelNowPlaying parseChannelNowPlaying(XMLStreamReader reader) throws XMLStreamException {
+        ChannelModel channel = new ChannelModel(Integer.parseInt(reader.getAttributeValue(null, "id")),
+                attributeOrEmpty(reader, "name"));
+        EpisodeModel current = null;
+        EpisodeModel next = null;
+        while(reader.hasNext()){
+            int event = reader.next();
+            if(event == XMLStreamConstants.END_ELEMENT){
+                break;
+            }
+            if(event != XMLStreamConstants.START_ELEMENT){continue;}
+            switch (reader.getLocalName()){
+                case "currentscheduledepisode" -> current = parseEpisode(reader);
+                case "nextscheduledepisode" -> next = parseEpisode(reader);
+                default -> skipElement(reader);//skip the previous episode and other elements
+            }
+        }
+        return new ChannelNowPlaying(channel, current, next);
+    }
+
+    /**
+     * Parses one episode, the reader must be positioned at the start of a scheduledepisode element
+     * and is left at its end
+     */
+    private EpisodeModel parseEpisode(XMLStreamReader reader) throws XMLStreamException {
+        EpisodeModelBuilder episodeBuilder = new EpisodeModel.Builder();
+        //get info from child elements
+        while(reader.hasNext()){
+            int event = reader.next();
+            if(event == XMLStreamConstants.END_ELEMENT){
+                break;
+            }
+            if(event != XMLStreamConstants.START_ELEMENT){continue;}
+            switch (reader.getLocalName()){
+                case "episodeid" -> episodeBuilder.setId(Integer.parseInt(reader.getElementText()));
+                case "title" -> episodeBuilder.setTitle(reader.getElementText());
+                case "subtitle" -> episodeBuilder.setSubtitle(reader.getElementText());
+                case "description" -> episodeBuilder.setDescription(reader.getElementText());
+                case "starttimeutc" -> episodeBuilder.setStartTime(Instant.parse(reader.getElementText()));
+                case "endtimeutc" -> episodeBuilder.setEndTime(Instant.parse(reader.getElementText()));
+                case "imageurl" -> episodeBuilder.setImageUrl(reader.getElementText());
+                case "program" -> {
+                    episodeBuilder.setProgramName(attributeOrEmpty(reader, "name"));
+                    skipElement(reader);
+                }
+                default -> skipElement(reader);//skip other elements
+            }
+        }
+        return episodeBuilder.build();
+    }
+
+    /**
+     * Moves the reader from the start of an element to its end, skipping everything inside it
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while(depth > 0 && reader.hasNext()){
+            int event = reader.next();
+            if(event == XMLStreamConstants.START_ELEMENT){
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Gets an attribute in the same way as Element.getAttribute, which gives an empty string for missing attributes
+     */
+    private static String attributeOrEmpty(XMLStreamReader reader, String name){
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+}
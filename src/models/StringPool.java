@@ -0,0 +1,75 @@
+package models;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Lets equal strings share one instance. Program names, titles, subtitles and image urls of recurring
+ * programs are the same for many episodes on many channels, so the episodes keep the shared instance
+ * instead of their own copies.
+ * The pool only refers to its strings weakly: a string is forgotten once no episode uses it any more, so strings
+ * of episodes that have been evicted or replaced by a refresh do not stay in memory and the pool does not grow
+ * for as long as the application runs. The pool is split in stripes so that threads parsing different pages
+ * seldom wait for each other.
+ * @version 1.1 strings are held weakly instead of up to a fixed count
+ * @since 2026-10-18
+ */
+public final class StringPool {
+    private static final int STRIPES = 16;
+    private static final StringPool sharedPool = new StringPool();
+    private final List<Map<String, WeakReference<String>>> stripes = new ArrayList<>(STRIPES);
+
+    /**
+     * Creates an empty pool
+     */
+    public StringPool(){
+        for(int i = 0 ; i < STRIPES ; i++){
+            stripes.add(new WeakHashMap<>());
+        }
+    }
+
+    /**
+     * @return the pool shared by the whole application
+     */
+    public static StringPool getSharedPool(){
+        return sharedPool;
+    }
+
+    /**
+     * @param string a string or null
+     * @return an equal string from the pool, or the given string which is then added to the pool,
+     * or null if the string is null
+     */
+    public String share(String string){
+        if(string == null){
+            return null;
+        }
+        Map<String, WeakReference<String>> stripe = stripes.get((string.hashCode() & 0x7fffffff) % STRIPES);
+        synchronized (stripe){
+            WeakReference<String> reference = stripe.get(string);
+            String shared = reference == null ? null : reference.get();
+            if(shared != null){
+                return shared;
+            }
+            //the value refers to the key weakly as well, so that the key can be collected
+            stripe.put(string, new WeakReference<>(string));
+            return string;
+        }
+    }
+
+    /**
+     * @return the number of strings in the pool, strings that are no longer used may still be counted
+     */
+    public int size(){
+        int size = 0;
+        for(Map<String, WeakReference<String>> stripe : stripes){
+            synchronized (stripe){
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
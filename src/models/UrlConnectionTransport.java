@@ -0,0 +1,227 @@
+package models;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default HttpTransport.
+ * Connections are kept alive and reused through the connection cache of HttpURLConnection, which reuses
+ * a connection once its response has been read to the end and closed. Closing a response therefore reads
+ * what is left of the body. Every request has a connect timeout and a read timeout, asks for gzip compressed
+ * responses and is retried with exponential backoff and random jitter if it fails in a way that is likely to be
+ * temporary.
+ * HttpClient was not used since it has no read timeout for a response body that is read as a stream.
+ * The connection cache keeps http.maxConnections idle connections per host, which Main sets to match the number
+ * of requests that are sent at once.
+ * Requests, retries and the number of bytes received before decompression are counted in the shared Metrics.
+ * @version 1.2 does not change the global connection cache settings
+ * @since 2026-10-18
+ */
+public class UrlConnectionTransport implements HttpTransport {
+    //status codes that are likely to be temporary
+    private static final Set<Integer> RETRY_STATUS_CODES = Set.of(429, 500, 502, 503, 504);
+    //bodies larger than this are not read to the end on close, their connection is dropped instead
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+    private static final long BASE_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 4000;
+    private static final LongAdder requestCount = Metrics.getSharedMetrics().counter("http.requests");
+    private static final LongAdder retryCount = Metrics.getSharedMetrics().counter("http.retries");
+    private static final LongAdder bytesReceived = Metrics.getSharedMetrics().counter("http.bytesReceived");
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final int maxRetries;
+
+    /**
+     * Creates a transport with timeouts and retries set by the system properties radioinfo.http.connectTimeoutMs
+     * (default 5000), radioinfo.http.readTimeoutMs (default 15000) and radioinfo.http.retries (default 2)
+     */
+    public UrlConnectionTransport(){
+        this(Integer.getInteger("radioinfo.http.connectTimeoutMs", 5000),
+                Integer.getInteger("radioinfo.http.readTimeoutMs", 15000),
+                Integer.getInteger("radioinfo.http.retries", 2));
+    }
+
+    /**
+     * Creates a transport
+     * @param connectTimeoutMs the longest time to wait for a connection, in milliseconds
+     * @param readTimeoutMs the longest time to wait for data while reading, in milliseconds
+     * @param maxRetries the number of times a request that failed temporarily is retried
+     */
+    public UrlConnectionTransport(int connectTimeoutMs, int readTimeoutMs, int maxRetries){
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public Response get(String url, Map<String, String> requestHeaders) throws IOException {
+        for(int attempt = 0 ; ; attempt++){
+            if(attempt > 0){
+                retryCount.increment();
+            }
+            requestCount.increment();
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) new URL(url).openConnection();
+                connection.setRequestMethod("GET");
+                connection.setConnectTimeout(connectTimeoutMs);
+                connection.setReadTimeout(readTimeoutMs);
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+                for(Map.Entry<String, String> header : requestHeaders.entrySet()){
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+                int statusCode = connection.getResponseCode();
+                if(attempt < maxRetries && RETRY_STATUS_CODES.contains(statusCode)){
+                    new ConnectionResponse(connection, statusCode).close();
+                    backOff(attempt);
+                    continue;
+                }
+                return new ConnectionResponse(connection, statusCode);
+            } catch (IOException e) {
+                if(connection != null){
+                    connection.disconnect();
+                }
+                if(attempt >= maxRetries || !isTemporary(e)){
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Checks if a failed request is likely to succeed if it is sent again
+     * @param e the reason the request failed
+     * @return true if the failure is likely to be temporary
+     */
+    private static boolean isTemporary(IOException e){
+        if(e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)){
+            return false;
+        }
+        return e instanceof SocketTimeoutException || e instanceof ConnectException ||
+                e instanceof UnknownHostException || e instanceof SocketException;
+    }
+
+    /**
+     * Waits before a retry, the wait is a random time up to an exponentially growing limit
+     * @param attempt number of the attempt that failed, starting at 0
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    private static void backOff(int attempt) throws InterruptedIOException {
+        long limit = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(limit / 2, limit + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Avbröts i väntan på nytt försök");
+        }
+    }
+
+    /**
+     * A response read from a HttpURLConnection
+     */
+    private static class ConnectionResponse implements Response {
+        private final HttpURLConnection connection;
+        private final int statusCode;
+        private InputStream body;
+
+        ConnectionResponse(HttpURLConnection connection, int statusCode){
+            this.connection = connection;
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if(body == null){
+                InputStream raw = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                if(raw == null){
+                    raw = InputStream.nullInputStream();
+                }
+                raw = new CountingInputStream(raw);
+                body = "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(raw) : raw;
+            }
+            return body;
+        }
+
+        /**
+         * Reads what is left of the body so that the connection can be reused, then closes the body
+         */
+        @Override
+        public void close() {
+            try {
+                InputStream in = getBody();
+                byte[] buffer = new byte[8192];
+                int drained = 0;
+                int read;
+                while((read = in.read(buffer)) != -1){
+                    drained += read;
+                    if(drained > MAX_DRAIN_BYTES){
+                        //too much left to read, do not keep the connection
+                        connection.disconnect();
+                        break;
+                    }
+                }
+                in.close();
+            } catch (IOException e) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Adds the number of bytes read through it to the count of received bytes
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in){
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1){
+                bytesReceived.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if(read > 0){
+                bytesReceived.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytesReceived.add(skipped);
+            return skipped;
+        }
+    }
+}
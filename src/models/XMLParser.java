@@ -41,11 +41,11 @@ public class XMLParser {
 
     /**
      * Parses models for radio-program-episodes from the given list of documents
+     * Cover images are not downloaded here, they are loaded in the background when first needed
      * @param documentList XML documents from the Swedish public radio API
      * @return a list of EpisodeModels, if no episodes could be parsed this list is empty.
      */
     public List<EpisodeModel> parseEpisodes(List<Document> documentList){
-        APIHandler imageFetcher = new APIHandler();
         ArrayList<EpisodeModel> results = new ArrayList<>();
         for(Document d : documentList){
             NodeList episodeList = d.getElementsByTagName("scheduledepisode");
@@ -67,7 +67,7 @@ public class XMLParser {
                         case "description" -> episodeBuilder.setDescription(episodeInfo.getTextContent());
                         case "starttimeutc" -> episodeBuilder.setStartTime(Instant.parse(episodeInfo.getTextContent()));
                         case "endtimeutc" -> episodeBuilder.setEndTime(Instant.parse(episodeInfo.getTextContent()));
-                        case "imageurl" -> episodeBuilder.setImage(imageFetcher.getImage(episodeInfo.getTextContent()));
+                        case "imageurl" -> episodeBuilder.setImageUrl(episodeInfo.getTextContent());
                         case "program" -> episodeBuilder.setProgramName(episodeInfo.getAttribute("name"));
                         default -> {
                             continue;//skip other attributes
@@ -0,0 +1,111 @@
+package models;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Shared XML parsers for reading responses from the Swedish public radio API.
+ * Looking up and configuring a JAXP factory is expensive, so the factories are configured once with
+ * secure processing settings and the parsers created from them are pooled and reused.
+ * JAXP parsers can not be used by several threads at once, a parser is borrowed from the pool for one document
+ * and returned afterwards. A pool is used instead of one parser per thread since virtual threads are not reused.
+ * @version 1.1 a parser feature that is not supported does not stop the others from being set
+ * @since 2026-10-18
+ */
+public final class XMLParsers {
+    private static final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+    private static final Queue<DocumentBuilder> documentBuilders = new ConcurrentLinkedQueue<>();
+    private static final Queue<XMLInputFactory> inputFactories = new ConcurrentLinkedQueue<>();
+
+    private XMLParsers(){}
+
+    /**
+     * Parses a document with a pooled DocumentBuilder
+     * @param in stream with the document
+     * @return the parsed document
+     * @throws ParserConfigurationException if no DocumentBuilder could be created
+     * @throws SAXException if the document is not well-formed XML
+     * @throws IOException if the stream could not be read
+     */
+    public static Document parseDocument(InputStream in) throws ParserConfigurationException, SAXException,
+            IOException {
+        DocumentBuilder documentBuilder = documentBuilders.poll();
+        if(documentBuilder == null){
+            synchronized (documentBuilderFactory){
+                documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            }
+        }
+        try {
+            return documentBuilder.parse(in);
+        } finally {
+            documentBuilder.reset();
+            documentBuilders.offer(documentBuilder);
+        }
+    }
+
+    /**
+     * Creates a stream reader with a pooled XMLInputFactory
+     * @param in stream with the document
+     * @return a reader positioned at the start of the document
+     * @throws XMLStreamException if the reader could not be created
+     */
+    public static XMLStreamReader createStreamReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = inputFactories.poll();
+        if(factory == null){
+            factory = createInputFactory();
+        }
+        try {
+            return factory.createXMLStreamReader(in);
+        } finally {
+            inputFactories.offer(factory);
+        }
+    }
+
+    /**
+     * Creates a DocumentBuilderFactory that does not load DTDs or external entities
+     */
+    private static DocumentBuilderFactory createDocumentBuilderFactory(){
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, "http://apache.org/xml/features/disallow-doctype-decl", true);
+        setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    /**
+     * Sets a feature of the factory if its parser supports it
+     */
+    private static void setFeature(DocumentBuilderFactory factory, String feature, boolean value){
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            //the feature is not supported by this parser, the remaining settings still apply
+        }
+    }
+
+    /**
+     * Creates an XMLInputFactory that does not load DTDs or external entities
+     */
+    private static XMLInputFactory createInputFactory(){
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -3,30 +3,49 @@ package views;
 import controllers.RadioInfoController;
 import models.ChannelModel;
 import models.EpisodeModel;
+import models.NowPlayingTableModel;
 import models.RadioChannelTableModel;
+import models.SearchResultTableModel;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A user interface for the RadioInfo application
  * @author Samuel Sandlund
- * @version 2.0
+ * @version 3.2 the episodes of a page are added to the shown channel table in place
  * @since 2023-02-07
  */
 public class RadioInfoGUI {
     private RadioInfoController currentController;
-    private final List<ChannelModel> channelList;
+    private List<ChannelModel> channelList;
     private ChannelModel currentChannel;
+    //true while the shown channel table is updated in place
+    private boolean updatingTable = false;
     private JFrame window;
     private JPanel contentPanel;
     private JPanel tablePanel;
     private JPanel loadingScreen;
     private JTable programTable;
+    //true once the channel table has been scrolled to the episode on air
+    private boolean onAirShown = false;
+    private RadioChannelTableModel channelTableModel;
+    private JPanel nowPlayingPanel;
+    private NowPlayingTableModel nowPlayingTableModel;
+    private JTable nowPlayingTable;
+    private JPanel searchPanel;
+    private JTextField searchField;
     private JMenu radioMenu;
+    private JMenuBar menuBar;
+    private JLabel channelStatus;
+    private Runnable firstPaintListener;
 
     /**
      * Creates and displays a new user interface for RadioInfo
@@ -38,9 +57,13 @@ public class RadioInfoGUI {
         initContentPanel();
         initLoadingScreen();
 
-        JMenuBar menuBar = new JMenuBar();
+        menuBar = new JMenuBar();
         initRadioMenu();
         menuBar.add(radioMenu);
+        channelStatus = new JLabel();
+        channelStatus.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+        menuBar.add(channelStatus);
+        initSearchField();
         window.add(menuBar, BorderLayout.NORTH);
 
         showStartScreen();
@@ -55,6 +78,35 @@ public class RadioInfoGUI {
         currentController = controller;
     }
 
+    /**
+     * Replaces the channels that can be selected in the menu
+     * @param channelList list of available channels to select from
+     */
+    public void setChannelList(List<ChannelModel> channelList){
+        this.channelList = channelList;
+        menuBar.remove(radioMenu);
+        initRadioMenu();
+        menuBar.add(radioMenu, 0);
+        menuBar.revalidate();
+        menuBar.repaint();
+    }
+
+    /**
+     * Shows how the loading of the channels is going next to the menu
+     * @param status text to show, or null to show nothing
+     */
+    public void showChannelStatus(String status){
+        channelStatus.setText(status == null ? "" : status);
+    }
+
+    /**
+     * Sets a listener that is told once, when the window has been painted for the first time
+     * @param listener the listener, run on the event dispatch thread
+     */
+    public void setFirstPaintListener(Runnable listener){
+        firstPaintListener = listener;
+    }
+
     /**
      * Shows a dialogue box with the given message
      * @param message a string with the text to show in the dialogue box
@@ -75,13 +127,159 @@ public class RadioInfoGUI {
 
     /**
      * Sets the content panel to display information about a given radio channel
+     * If the table of the same channel is already shown it is updated in place, keeping selection and scroll position
      * @param channel ChannelModel for the channel to show
-     * @param episodes List of current episodes on the channel
+     * @param channelTableModel table model with the current episodes on the channel
      */
-    public void setCurrentChannel(ChannelModel channel, List<EpisodeModel> episodes){
+    public void setCurrentChannel(ChannelModel channel, RadioChannelTableModel channelTableModel){
+        boolean sameChannel = currentChannel != null && currentChannel.getId() == channel.getId();
         currentChannel = channel;
-        buildChannelTablePanel(channel, episodes);
+        if(sameChannel && isChannelTableShown() && !this.channelTableModel.isEmpty() && !channelTableModel.isEmpty()){
+            //rows removed or added above the selection move it, which is not the user choosing an episode
+            updatingTable = true;
+            try {
+                this.channelTableModel.update(channelTableModel);
+            } finally {
+                updatingTable = false;
+            }
+            scrollToOnAir();
+            return;
+        }
+        buildChannelTablePanel(channel, channelTableModel);
         showChannelTable();
+        scrollToOnAir();
+    }
+
+    /**
+     * Adds episodes to the table of a channel, such as the episodes of a page of a schedule that is still being
+     * fetched. If the table of the channel is shown the rows are inserted in place, else the table is shown
+     * with only the given episodes
+     * @param channel ChannelModel for the channel to show
+     * @param episodes episodes on the channel, in any order
+     */
+    public void addChannelEpisodes(ChannelModel channel, List<EpisodeModel> episodes){
+        boolean sameChannel = currentChannel != null && currentChannel.getId() == channel.getId();
+        if(!sameChannel || !isChannelTableShown()){
+            RadioChannelTableModel tableModel = new RadioChannelTableModel(new ArrayList<>());
+            tableModel.insertEpisodes(episodes);
+            setCurrentChannel(channel, tableModel);
+            return;
+        }
+        //rows inserted above the selection move it, which is not the user choosing an episode
+        updatingTable = true;
+        try {
+            channelTableModel.insertEpisodes(episodes);
+        } finally {
+            updatingTable = false;
+        }
+        scrollToOnAir();
+    }
+
+    /**
+     * Scrolls the channel table to the episode that is on air, or to the first episode that has not ended if
+     * none is. Once the episode on air has been scrolled to the table is left where the user puts it
+     */
+    private void scrollToOnAir(){
+        if(onAirShown || programTable == null || channelTableModel.isEmpty()){
+            return;
+        }
+        Instant now = Instant.now();
+        for(int row = 0 ; row < channelTableModel.getRowCount() ; row++){
+            EpisodeModel episode = channelTableModel.getEpisode(row);
+            if(episode.getEndTime() != null && episode.getEndTime().isAfter(now)){
+                JTable table = programTable;
+                int onAirRow = row;
+                //scroll when the table has been laid out
+                SwingUtilities.invokeLater(() -> table.scrollRectToVisible(table.getCellRect(onAirRow, 0, true)));
+                //the episode on air may be on a page that has not arrived yet
+                onAirShown = episode.getStartTime() != null && !episode.getStartTime().isAfter(now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the content panel to show the current and next episode of every channel,
+     * selecting a channel in the table opens it
+     * @param tableModel table model with one row per channel
+     */
+    public void showNowPlaying(NowPlayingTableModel tableModel){
+        currentChannel = null;
+        if(isNowPlayingShown() && tableModel == nowPlayingTableModel){
+            return;
+        }
+        if(tableModel == nowPlayingTableModel && nowPlayingPanel != null){
+            //the same table is shown again, the channel selected when it was left would not be opened again
+            nowPlayingTable.clearSelection();
+        }
+        else {
+            if(nowPlayingTable != null){
+                //the old table would otherwise be kept by the model it listens to
+                nowPlayingTableModel.removeTableModelListener(nowPlayingTable);
+            }
+            nowPlayingTableModel = tableModel;
+            nowPlayingPanel = new JPanel(new BorderLayout());
+            JLabel title = new JLabel("Sänds nu", SwingConstants.CENTER);
+            title.setFont(new Font("Title", Font.PLAIN, 20));
+            nowPlayingPanel.add(title, BorderLayout.NORTH);
+            JTable table = new JTable(tableModel);
+            table.getSelectionModel().addListSelectionListener(e -> {
+                int selectedRow = table.getSelectedRow();
+                if(!e.getValueIsAdjusting() && selectedRow >= 0 && selectedRow < table.getRowCount()){
+                    currentController.openChannel(tableModel.getChannel(selectedRow));
+                }
+            });
+            nowPlayingTable = table;
+            nowPlayingPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        }
+        clearContentPanel();
+        contentPanel.add(nowPlayingPanel);
+        contentPanel.revalidate();
+        contentPanel.repaint();
+    }
+
+    /**
+     * @return true if the content panel shows what is on air on all channels
+     */
+    public boolean isNowPlayingShown(){
+        return nowPlayingPanel != null && nowPlayingPanel.getParent() == contentPanel;
+    }
+
+    /**
+     * Sets the content panel to show the episodes found by a search, selecting an episode shows more about it
+     * @param query the text that was searched for
+     * @param tableModel table model with the episodes that were found
+     */
+    public void showSearchResults(String query, SearchResultTableModel tableModel){
+        currentChannel = null;
+        searchPanel = new JPanel(new BorderLayout());
+        JLabel title = new JLabel("Sökresultat för \"" + query.trim() + "\"", SwingConstants.CENTER);
+        title.setFont(new Font("Title", Font.PLAIN, 20));
+        searchPanel.add(title, BorderLayout.NORTH);
+        if(tableModel.isEmpty()){
+            searchPanel.add(new JLabel("Inga sparade avsnitt matchar sökningen", SwingConstants.CENTER));
+        }
+        else {
+            JTable table = new JTable(tableModel);
+            table.getSelectionModel().addListSelectionListener(e -> {
+                int selectedRow = table.getSelectedRow();
+                if(!e.getValueIsAdjusting() && selectedRow >= 0 && selectedRow < table.getRowCount()){
+                    showEpisodeInfo(tableModel.getEpisode(selectedRow));
+                }
+            });
+            searchPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        }
+        clearContentPanel();
+        contentPanel.add(searchPanel);
+        contentPanel.revalidate();
+        contentPanel.repaint();
+    }
+
+    /**
+     * @return true if the content panel shows the results of a search
+     */
+    public boolean isSearchShown(){
+        return searchPanel != null && searchPanel.getParent() == contentPanel;
     }
 
     /**
@@ -122,10 +320,12 @@ public class RadioInfoGUI {
     /**
      * Sets the table panel to show information from the given channelTableModel
      * @param channel ChannelModel for the channel to show
-     * @param episodes List of current episodes on the channel
+     * @param channelTableModel table model with the current episodes on the channel
      */
-    private void buildChannelTablePanel(ChannelModel channel, List<EpisodeModel> episodes){
-        RadioChannelTableModel channelTableModel = new RadioChannelTableModel(episodes);
+    private void buildChannelTablePanel(ChannelModel channel, RadioChannelTableModel channelTableModel){
+        this.channelTableModel = channelTableModel;
+        programTable = null;
+        onAirShown = false;
         tablePanel = new JPanel();
         tablePanel.setLayout(new BorderLayout());
         JLabel name = new JLabel(channel.getName(), SwingConstants.CENTER);
@@ -140,8 +340,8 @@ public class RadioInfoGUI {
             programTable.getSelectionModel().addListSelectionListener(e->{
                 int selectedRow = programTable.getSelectedRow();
                 if(selectedRow >= 0 && selectedRow < programTable.getRowCount()){
-                    EpisodeModel episode = channelTableModel.getEpisode(selectedRow);
-                    if(!e.getValueIsAdjusting()){
+                    EpisodeModel episode = this.channelTableModel.getEpisode(selectedRow);
+                    if(!e.getValueIsAdjusting() && !updatingTable){
                         showEpisodeInfo(episode);
                     }
                 }
@@ -166,7 +366,25 @@ public class RadioInfoGUI {
 
         JLabel icon = new JLabel();
         if(episode.getImage() != null){
-            icon.setIcon(new ImageIcon(episode.getImage()));
+            Image image = episode.getImage().getImageNow();
+            if(image != null){
+                icon.setIcon(new ImageIcon(image));
+            }
+            else if(!episode.getImage().isLoaded()){
+                //show a placeholder of the same size as the image until it has been downloaded
+                icon.setText("Hämtar bild...");
+                icon.setHorizontalAlignment(SwingConstants.CENTER);
+                icon.setPreferredSize(new Dimension(100, 100));
+                icon.setMaximumSize(new Dimension(100, 100));
+                episode.getImage().whenLoaded(loadedImage -> SwingUtilities.invokeLater(() -> {
+                    icon.setText(null);
+                    if(loadedImage != null){
+                        icon.setIcon(new ImageIcon(loadedImage));
+                    }
+                    icon.revalidate();
+                    icon.repaint();
+                }));
+            }
         }
         icon.setAlignmentX(Component.CENTER_ALIGNMENT);
         boxPanel.add(icon);
@@ -199,6 +417,13 @@ public class RadioInfoGUI {
         infoFrame.setVisible(true);
     }
 
+    /**
+     * @return true if the content panel shows the table of the current channel
+     */
+    private boolean isChannelTableShown(){
+        return tablePanel != null && channelTableModel != null && tablePanel.getParent() == contentPanel;
+    }
+
     /**
      * Sets the content panel to the currently selected channel
      */
@@ -223,7 +448,17 @@ public class RadioInfoGUI {
      * Sets up the central panel of the interface where content is displayed
      */
     private void initContentPanel(){
-        contentPanel = new JPanel(new BorderLayout());
+        contentPanel = new JPanel(new BorderLayout()){
+            @Override
+            protected void paintComponent(Graphics g){
+                super.paintComponent(g);
+                if(firstPaintListener != null){
+                    Runnable listener = firstPaintListener;
+                    firstPaintListener = null;
+                    listener.run();
+                }
+            }
+        };
         window.add(contentPanel, BorderLayout.CENTER);
     }
 
@@ -234,8 +469,11 @@ public class RadioInfoGUI {
         radioMenu = new JMenu("Radio");
         JMenuItem updateOption = new JMenuItem("Uppdatera tablåer");
         updateOption.addActionListener(e -> currentController.updateEpisodeLists());
+        JMenuItem nowPlayingOption = new JMenuItem("Sänds nu på alla kanaler");
+        nowPlayingOption.addActionListener(e -> currentController.showNowPlaying());
         JMenu channelsMenu = new JMenu("Välj kanal");
         radioMenu.add(channelsMenu);
+        radioMenu.add(nowPlayingOption);
         radioMenu.addSeparator();
         radioMenu.add(updateOption);
         JMenu p2Menu = new JMenu("P2");
@@ -245,9 +483,9 @@ public class RadioInfoGUI {
         for(ChannelModel c : channelList){
             //add the channel to the menu
             JMenuItem item = new JMenuItem(c.getName());
-            item.addActionListener(e -> currentController.getScheduledEpisodes(c));
+            item.addActionListener(e -> currentController.openChannel(c));
             //sort channels in menu by start of name
-            switch (c.getName().substring(0, 2)) {
+            switch (c.getMenuGroup()) {
                 case "P2" -> p2Menu.add(item);
                 case "P3" -> p3Menu.add(item);
                 case "P4" -> p4Menu.add(item);
@@ -255,6 +493,12 @@ public class RadioInfoGUI {
                 default -> channelsMenu.add(item);
             }
         }
+        if(channelList.isEmpty()){
+            JMenuItem noChannels = new JMenuItem("Kanalerna har inte hämtats än");
+            noChannels.setEnabled(false);
+            channelsMenu.add(noChannels);
+            return;
+        }
         channelsMenu.addSeparator();
         channelsMenu.add(p2Menu);
         channelsMenu.add(p3Menu);
@@ -262,6 +506,38 @@ public class RadioInfoGUI {
         channelsMenu.add(srMenu);
     }
 
+    /**
+     * Sets up the search field at the right end of the menu bar, a search is made when the user
+     * has stopped typing for a moment
+     */
+    private void initSearchField(){
+        searchField = new JTextField(15);
+        searchField.setMaximumSize(searchField.getPreferredSize());
+        Timer searchTimer = new Timer(250, e -> currentController.search(searchField.getText()));
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchField.addActionListener(e -> {
+            searchTimer.stop();
+            currentController.search(searchField.getText());
+        });
+        menuBar.add(Box.createHorizontalGlue());
+        menuBar.add(new JLabel("Sök: "));
+        menuBar.add(searchField);
+    }
+
     /**
      * Sets up the loading screen that can be shown when waiting for a channels episodes to load
      */
@@ -0,0 +1,47 @@
+package views;
+
+import models.LatencyHistogram;
+import models.Metrics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An event queue that records how long the event dispatch thread spends on each event, such as a repaint,
+ * a click or a task passed to invokeLater. The times are recorded in the histogram edt.events of the shared
+ * Metrics, and events that block the user interface for longer than 100 ms are also counted in edt.slowEvents.
+ * @version 1.0
+ * @since 2026-10-18
+ */
+public class TimedEventQueue extends EventQueue {
+    private static final long SLOW_EVENT_NANOS = 100_000_000;
+    private static boolean installed = false;
+    private final LatencyHistogram eventTimes = Metrics.getSharedMetrics().histogram("edt.events");
+    private final LongAdder slowEvents = Metrics.getSharedMetrics().counter("edt.slowEvents");
+
+    /**
+     * Replaces the system event queue with a timed queue, calls after the first do nothing
+     */
+    public static synchronized void install(){
+        if(!installed){
+            installed = true;
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimedEventQueue());
+        }
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event){
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            eventTimes.record(nanos);
+            if(nanos > SLOW_EVENT_NANOS){
+                slowEvents.increment();
+            }
+        }
+    }
+}